@@ -4,7 +4,33 @@ javadoc \
     -d _javadoc \
     -cp artifacts/JarImplementorTest.jar:"lib/hamcrest-core-1.3.jar:lib/junit-4.11.jar:lib/jsoup-1.8.1.jar:"lib/quickcheck-0.6.jar:\
      modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MethodDataClass.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MethodDataSet.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MethodTable.java \
      modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/Implementor.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/ImplementationResult.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/CompilationMode.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/SignatureClassPath.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/Accessibility.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/CompileScheduler.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MemoryJavaFileManager.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/SourceEncoding.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/ChannelWriter.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/AtomicFiles.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/JarWriter.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/JarIndex.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/IndexedJarClassLoader.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/SourceSink.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/Abortable.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/ClassSink.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/Sinks.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/ZipSink.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MemoryFileSystemProvider.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MemoryFileSystem.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/MemoryPath.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/CompilerService.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/CompilerWorker.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/CompilerWorkerPool.java \
+     modules/ru.ifmo.rain.zhelenskiy.implementor/src/ru/ifmo/rain/zhelenskiy/implementor/ClassFileWriter.java \
      modules/ru.ifmo.rain.zhelenskiy.implementor/src/package-info.java \
      modules/info.kgeorgiy.java.advanced.implementor/info/kgeorgiy/java/advanced/implementor/Impler.java \
      modules/info.kgeorgiy.java.advanced.implementor/info/kgeorgiy/java/advanced/implementor/JarImpler.java \
@@ -4,4 +4,5 @@
 module ru.ifmo.rain.zhelenskiy.implementor {
     requires info.kgeorgiy.java.advanced.implementor;
     requires java.compiler;
+    requires java.management;
 }
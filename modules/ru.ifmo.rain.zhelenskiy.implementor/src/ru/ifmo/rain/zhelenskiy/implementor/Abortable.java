@@ -0,0 +1,16 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+/**
+ * The output that can be abandoned instead of being completed, so the incomplete content is never published.
+ * {@link Implementor} aborts the writers and the sinks implementing it when the generation fails
+ * and closes them otherwise.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+interface Abortable {
+    /**
+     * Discards the content written so far and releases the resources of the output.
+     * Does nothing if the output is already completed or aborted.
+     */
+    void abort();
+}
@@ -0,0 +1,111 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * The static analyzer of the accessibility of the types the implementation refers to by name.
+ * The implementation is the public top-level class in the package of the implemented token, so a type is accessible
+ * if it and all its enclosing classes are:
+ * <ul>
+ *     <li>Public;</li>
+ *     <li>Not private and in the package of the token;</li>
+ *     <li>Protected member classes of a supertype of the token.</li>
+ * </ul>
+ * Besides, the type must have a canonical name and the types of the platform must be in exported packages.
+ * The analysis uses reflection only, so the tokens that would not compile are rejected before any file is written.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class Accessibility {
+    /**
+     * There are no instances of the utilities.
+     */
+    private Accessibility() {
+    }
+
+    /**
+     * Finds the type of the signature of the executable that the implementation of the token can not refer to.
+     * Only the erased types are checked, as the implementation does not use generic types.
+     * @param token the implemented type token
+     * @param executable the implemented method or the called super constructor
+     * @return the description of the problem or {@code null} if all the types are accessible
+     */
+    static String findProblem(Class<?> token, Executable executable) {
+        String kind = executable instanceof Constructor ? "constructor" : "method " + executable.getName();
+        if (executable instanceof Method) {
+            String problem = findProblem(token, ((Method) executable).getReturnType());
+            if (problem != null) {
+                return "result of " + kind + ": " + problem;
+            }
+        }
+        Class<?>[] parameters = executable.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            String problem = findProblem(token, parameters[i]);
+            if (problem != null) {
+                return "parameter " + (i + 1) + " of " + kind + ": " + problem;
+            }
+        }
+        for (Class<?> exception : executable.getExceptionTypes()) {
+            String problem = findProblem(token, exception);
+            if (problem != null) {
+                return "exception of " + kind + ": " + problem;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the implementation of the token can refer to the type by its canonical name.
+     * @param token the implemented type token
+     * @param type the type to check
+     * @return the description of the problem or {@code null} if the type is accessible
+     */
+    static String findProblem(Class<?> token, Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return null;
+        }
+        if (type.getCanonicalName() == null) {
+            return type.getName() + " is local or anonymous";
+        }
+        Module module = type.getModule();
+        if (isPlatform(module) && !module.isExported(type.getPackageName())) {
+            return type.getName() + " is not exported by module " + module.getName();
+        }
+        for (Class<?> current = type; current != null; current = current.getDeclaringClass()) {
+            int modifiers = current.getModifiers();
+            if (Modifier.isPublic(modifiers)) {
+                continue;
+            }
+            if (Modifier.isPrivate(modifiers)) {
+                return current.getName() + " is private";
+            }
+            if (current.getPackageName().equals(token.getPackageName())) {
+                continue;
+            }
+            if (Modifier.isProtected(modifiers)) {
+                if (current.getDeclaringClass() != null && current.getDeclaringClass().isAssignableFrom(token)) {
+                    continue;
+                }
+                return current.getName() + " is protected in other package";
+            }
+            return current.getName() + " is package-private in other package";
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the module is the module of the platform, whose packages are encapsulated when compiling.
+     * @param module the module to check
+     * @return if the module is the named module of the boot or the platform class loader
+     */
+    private static boolean isPlatform(Module module) {
+        ClassLoader loader = module.getClassLoader();
+        return module.isNamed() && (loader == null || loader == ClassLoader.getPlatformClassLoader());
+    }
+}
@@ -0,0 +1,158 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The utilities publishing the generated files atomically.
+ * Each file is written to a temporary sibling and then moved to its place with
+ * {@link StandardCopyOption#ATOMIC_MOVE}, so the readers never see partially written files,
+ * even if several processes write to the same directory.
+ * The directories already created by the process are remembered, so they are not created again.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class AtomicFiles {
+    /**
+     * The cache is cleared when it becomes bigger than this.
+     */
+    private static final int MAX_CACHED_DIRECTORIES = 1 << 16;
+
+    /**
+     * The absolute paths of the directories of the default file system that are known to exist.
+     */
+    private static final Set<Path> DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The source of the names of the temporary files, so the concurrent processes do not guess each other's names.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * There are no instances of the utilities.
+     */
+    private AtomicFiles() {
+    }
+
+    /**
+     * Creates the directory and its parents unless it is known to exist. It is safe to call it concurrently.
+     * @param dir the directory to create
+     * @throws IOException when the directory can not be created.
+     */
+    static void createDirectories(Path dir) throws IOException {
+        boolean cached = dir.getFileSystem() == FileSystems.getDefault();
+        Path key = cached ? dir.toAbsolutePath().normalize() : dir;
+        if (cached && DIRECTORIES.contains(key)) {
+            return;
+        }
+        Files.createDirectories(dir);
+        if (cached) {
+            if (DIRECTORIES.size() > MAX_CACHED_DIRECTORIES) {
+                DIRECTORIES.clear();
+            }
+            DIRECTORIES.add(key);
+        }
+    }
+
+    /**
+     * Creates the empty temporary file in the directory of the target, creating the directory if needed.
+     * The cached directory is created again if it was removed.
+     * Unlike {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])}
+     * the file is created with the default permissions, so the published file is as readable as any other file
+     * created by the process.
+     * @param target the file to be published later
+     * @return the temporary file
+     * @throws IOException when the temporary file can not be created.
+     */
+    static Path createTempSibling(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        createDirectories(parent);
+        String prefix = "." + target.getFileName() + ".";
+        try {
+            return createUnique(parent, prefix);
+        } catch (NoSuchFileException e) {
+            DIRECTORIES.remove(parent.normalize());
+            createDirectories(parent);
+            return createUnique(parent, prefix);
+        }
+    }
+
+    /**
+     * Creates the new empty file with the random name in the directory.
+     * @param dir the directory of the file
+     * @param prefix the prefix of the name of the file
+     * @return the created file
+     * @throws IOException when the file can not be created.
+     */
+    private static Path createUnique(Path dir, String prefix) throws IOException {
+        while (true) {
+            Path file = dir.resolve(prefix + Long.toUnsignedString(RANDOM.nextLong()) + ".tmp");
+            try {
+                Files.newByteChannel(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                return file;
+            } catch (FileAlreadyExistsException e) {
+                // the name is taken, so the other one is tried
+            }
+        }
+    }
+
+    /**
+     * Moves the temporary file to the target replacing it atomically.
+     * If the file system can not move atomically, the target is just replaced.
+     * The temporary file is deleted if it can not be moved.
+     * @param temp the written temporary file
+     * @param target the file to publish
+     * @throws IOException when the file can not be moved.
+     */
+    static void publish(Path temp, Path target) throws IOException {
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the temporary file that is not going to be published. Errors are ignored.
+     * @param temp the temporary file
+     */
+    static void discard(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException | SecurityException e) {
+            // the file is temporary and is never read, so there is nothing to do
+        }
+    }
+
+    /**
+     * Writes the content to the file atomically.
+     * @param target the file to write
+     * @param content the content of the file
+     * @throws IOException when the file can not be written.
+     */
+    static void write(Path target, byte[] content) throws IOException {
+        Path temp = createTempSibling(target);
+        try {
+            Files.write(temp, content);
+        } catch (IOException | RuntimeException e) {
+            discard(temp);
+            throw e;
+        }
+        publish(temp, target);
+    }
+}
@@ -0,0 +1,241 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * The writer that encodes the whole content of the file in {@code UTF-8} to a single {@link ByteBuffer}
+ * and writes it to the file by one channel write when it is closed. For the default file system the channel
+ * is {@link java.nio.channels.FileChannel}.
+ * The buffers are pooled per thread, so writing of many files does not allocate new buffers,
+ * and the time of writing depends on the size of the file, not on the number of {@code write} calls.
+ * The content is written to a temporary sibling of the file that replaces the file when the writer is closed
+ * or is deleted when the writer is aborted.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class ChannelWriter extends Writer implements Abortable {
+    /**
+     * The buffers bigger than this are not returned to the pool.
+     */
+    private static final int MAX_POOLED_CAPACITY = 1 << 20;
+
+    /**
+     * The pooled heap buffers.
+     */
+    private static final ThreadLocal<ByteBuffer> HEAP_BUFFERS = new ThreadLocal<>();
+
+    /**
+     * The pooled direct buffers.
+     */
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFERS = new ThreadLocal<>();
+
+    private final Path file;
+    private final Path temp;
+    private final SeekableByteChannel channel;
+    private final boolean direct;
+    private ByteBuffer buffer;
+    /**
+     * The high surrogate waiting for its low surrogate or {@code 0}.
+     */
+    private char highSurrogate;
+
+    /**
+     * Opens the file and takes the buffer of at least the estimated size from the pool.
+     * @param file the file to write to, it is created or replaced
+     * @param estimatedSize the expected size of the content in bytes
+     * @param direct if the direct buffer should be used
+     * @throws IOException when the file can not be opened.
+     */
+    ChannelWriter(Path file, int estimatedSize, boolean direct) throws IOException {
+        this.file = file;
+        this.temp = AtomicFiles.createTempSibling(file);
+        try {
+            this.channel = Files.newByteChannel(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            AtomicFiles.discard(temp);
+            throw e;
+        }
+        this.direct = direct;
+        ThreadLocal<ByteBuffer> pool = pool();
+        ByteBuffer pooled = pool.get();
+        pool.set(null);
+        this.buffer = pooled != null && pooled.capacity() >= estimatedSize
+                ? pooled.clear()
+                : allocate(Math.max(estimatedSize, pooled == null ? 0 : pooled.capacity()));
+    }
+
+    /**
+     * Gives the pool of the buffers of the kind used by the writer.
+     * @return the pool
+     */
+    private ThreadLocal<ByteBuffer> pool() {
+        return direct ? DIRECT_BUFFERS : HEAP_BUFFERS;
+    }
+
+    /**
+     * Allocates the buffer of the kind used by the writer.
+     * @param capacity the capacity of the buffer
+     * @return the new buffer
+     */
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Grows the buffer so that the given number of bytes fits in it.
+     * @param bytes the number of bytes to be written
+     */
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Encodes the character. The buffer should have at least 4 bytes remaining.
+     * @param c the character to encode
+     */
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)))
+                        .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            buffer.put((byte) '?');
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)))
+                    .put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)))
+                    .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                    .put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    /**
+     * Encodes the character to the buffer.
+     * @param c the character to write
+     */
+    @Override
+    public void write(int c) {
+        ensureRemaining(4);
+        encode((char) c);
+    }
+
+    /**
+     * Encodes the part of the array to the buffer.
+     * @param chars the characters to write
+     * @param offset the index of the first character to write
+     * @param length the number of the characters to write
+     */
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, chars.length);
+        ensureRemaining(3 * length + 1);
+        for (int i = offset; i < offset + length; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    /**
+     * Encodes the part of the {@link String} to the buffer.
+     * @param str the string to write
+     * @param offset the index of the first character to write
+     * @param length the number of the characters to write
+     */
+    @Override
+    public void write(String str, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, str.length());
+        ensureRemaining(3 * length + 1);
+        for (int i = offset; i < offset + length; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    /**
+     * Does nothing as the content is written when the writer is closed.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Writes the content of the buffer to the temporary file, publishes it and returns the buffer to the pool.
+     * @throws IOException when the content can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        boolean published = false;
+        try {
+            try (channel) {
+                if (highSurrogate != 0) {
+                    ensureRemaining(1);
+                    buffer.put((byte) '?');
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            AtomicFiles.publish(temp, file);
+            published = true;
+        } finally {
+            release();
+            if (!published) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary file without publishing it and returns the buffer to the pool.
+     */
+    @Override
+    public void abort() {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the file is deleted anyway
+        }
+        release();
+        AtomicFiles.discard(temp);
+    }
+
+    /**
+     * Returns the buffer to the pool unless it is too big.
+     */
+    private void release() {
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            pool().set(buffer);
+        }
+        buffer = null;
+    }
+}
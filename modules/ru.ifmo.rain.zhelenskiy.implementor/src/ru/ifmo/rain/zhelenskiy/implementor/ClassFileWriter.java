@@ -0,0 +1,415 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The writer of {@code .class}-files of the implementations without the java compiler.
+ * The generated class has the same members as the source code generated by {@link Implementor}:
+ * <ul>
+ *     <li>The constructor that calls the super constructor with all its arguments;</li>
+ *     <li>The methods that return the default value of their return types.</li>
+ * </ul>
+ * The generated code has no branches, so no {@code StackMapTable} attributes are needed.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class ClassFileWriter {
+    /**
+     * Version of the generated class files (Java 8).
+     */
+    private static final int MAJOR_VERSION = 52;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_0 = 0x09;
+    private static final int FCONST_0 = 0x0b;
+    private static final int DCONST_0 = 0x0e;
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int FLOAD = 0x17;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream methodsBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodsBytes);
+    private int methodCount = 0;
+
+    /**
+     * Constructs empty writer. Use {@link #generate(String, Class, Constructor, Collection)}.
+     */
+    private ClassFileWriter() {
+    }
+
+    /**
+     * Generates the {@code .class}-file of the implementation.
+     * @param className the binary name of the implementation class
+     * @param token the implemented type token
+     * @param constructor the super constructor to call or {@code null} if the token is an interface
+     * @param abstractMethods the methods to implement
+     * @return the content of the {@code .class}-file
+     */
+    static byte[] generate(String className, Class<?> token, Constructor<?> constructor,
+                           Collection<Method> abstractMethods) {
+        try {
+            return new ClassFileWriter().write(className, token, constructor, abstractMethods);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Byte array streams do not throw", e);
+        }
+    }
+
+    /**
+     * Writes the whole {@code .class}-file.
+     * @param className the binary name of the implementation class
+     * @param token the implemented type token
+     * @param constructor the super constructor to call or {@code null} if the token is an interface
+     * @param abstractMethods the methods to implement
+     * @return the content of the {@code .class}-file
+     * @throws IOException never as the output is in memory
+     */
+    private byte[] write(String className, Class<?> token, Constructor<?> constructor,
+                         Collection<Method> abstractMethods) throws IOException {
+        Class<?> superClass = token.isInterface() ? Object.class : token;
+        int thisIndex = classConstant(getInternalName(className));
+        int superIndex = classConstant(getInternalName(superClass.getName()));
+        int interfaceIndex = token.isInterface() ? classConstant(getInternalName(token.getName())) : 0;
+
+        if (constructor == null) {
+            writeConstructor(superClass, new Class<?>[0], new Class<?>[0]);
+        } else {
+            writeConstructor(superClass, constructor.getParameterTypes(), constructor.getExceptionTypes());
+        }
+        for (Method method : abstractMethods) {
+            writeMethod(method);
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(result);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(MAJOR_VERSION);
+        out.writeShort(constantCount);
+        constantPoolBytes.writeTo(out);
+        out.writeShort(Modifier.PUBLIC | ACC_SUPER);
+        out.writeShort(thisIndex);
+        out.writeShort(superIndex);
+        if (token.isInterface()) {
+            out.writeShort(1);
+            out.writeShort(interfaceIndex);
+        } else {
+            out.writeShort(0);
+        }
+        out.writeShort(0);
+        out.writeShort(methodCount);
+        methodsBytes.writeTo(out);
+        out.writeShort(0);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    /**
+     * Writes the public constructor that calls the super constructor with all its arguments.
+     * @param superClass the super class
+     * @param parameterTypes the parameter types of the super constructor
+     * @param exceptionTypes the exceptions thrown by the super constructor
+     * @throws IOException never as the output is in memory
+     */
+    private void writeConstructor(Class<?> superClass, Class<?>[] parameterTypes,
+                                  Class<?>[] exceptionTypes) throws IOException {
+        String descriptor = getMethodDescriptor(parameterTypes, void.class);
+        int superConstructor = methodRefConstant(getInternalName(superClass.getName()), "<init>", descriptor);
+        int slots = getSlots(parameterTypes);
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.write(ALOAD_0);
+        int slot = 1;
+        for (Class<?> type : parameterTypes) {
+            code.write(getLoadInstruction(type));
+            code.write(slot);
+            slot += getSlots(type);
+        }
+        code.write(INVOKESPECIAL);
+        code.write(superConstructor >> 8);
+        code.write(superConstructor);
+        code.write(RETURN);
+
+        writeExecutable(Modifier.PUBLIC, "<init>", descriptor, 1 + slots, 1 + slots, code, exceptionTypes);
+    }
+
+    /**
+     * Writes the method that returns the default value of its return type.
+     * @param method the method to implement
+     * @throws IOException never as the output is in memory
+     */
+    private void writeMethod(Method method) throws IOException {
+        Class<?> returnType = method.getReturnType();
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        if (returnType == void.class) {
+            code.write(RETURN);
+        } else if (returnType == long.class) {
+            code.write(LCONST_0);
+            code.write(LRETURN);
+        } else if (returnType == float.class) {
+            code.write(FCONST_0);
+            code.write(FRETURN);
+        } else if (returnType == double.class) {
+            code.write(DCONST_0);
+            code.write(DRETURN);
+        } else if (returnType.isPrimitive()) {
+            code.write(ICONST_0);
+            code.write(IRETURN);
+        } else {
+            code.write(ACONST_NULL);
+            code.write(ARETURN);
+        }
+        int access = method.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED);
+        writeExecutable(access, method.getName(),
+                getMethodDescriptor(method.getParameterTypes(), returnType),
+                getSlots(returnType), 1 + getSlots(method.getParameterTypes()),
+                code, method.getExceptionTypes());
+    }
+
+    /**
+     * Writes the {@code method_info} structure with {@code Code} and {@code Exceptions} attributes.
+     * @param access the access flags
+     * @param name the name of the method
+     * @param descriptor the descriptor of the method
+     * @param maxStack maximum depth of the operand stack
+     * @param maxLocals number of local variables
+     * @param code the byte code
+     * @param exceptionTypes the declared exceptions
+     * @throws IOException never as the output is in memory
+     */
+    private void writeExecutable(int access, String name, String descriptor, int maxStack, int maxLocals,
+                                 ByteArrayOutputStream code, Class<?>[] exceptionTypes) throws IOException {
+        int nameIndex = utf8Constant(name);
+        int descriptorIndex = utf8Constant(descriptor);
+        int codeIndex = utf8Constant("Code");
+        int[] exceptionIndices = new int[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptionIndices[i] = classConstant(getInternalName(exceptionTypes[i].getName()));
+        }
+
+        methods.writeShort(access);
+        methods.writeShort(nameIndex);
+        methods.writeShort(descriptorIndex);
+        methods.writeShort(exceptionTypes.length == 0 ? 1 : 2);
+
+        methods.writeShort(codeIndex);
+        methods.writeInt(12 + code.size());
+        methods.writeShort(maxStack);
+        methods.writeShort(maxLocals);
+        methods.writeInt(code.size());
+        code.writeTo(methods);
+        methods.writeShort(0);
+        methods.writeShort(0);
+
+        if (exceptionTypes.length != 0) {
+            methods.writeShort(utf8Constant("Exceptions"));
+            methods.writeInt(2 + 2 * exceptionIndices.length);
+            methods.writeShort(exceptionIndices.length);
+            for (int index : exceptionIndices) {
+                methods.writeShort(index);
+            }
+        }
+        methodCount++;
+    }
+
+    /**
+     * Adds {@code CONSTANT_Utf8} to the constant pool if it is absent.
+     * @param value the string constant
+     * @return index of the constant
+     * @throws IOException never as the output is in memory
+     */
+    private int utf8Constant(String value) throws IOException {
+        Integer index = constants.get("U" + value);
+        if (index == null) {
+            constantPool.writeByte(CONSTANT_UTF8);
+            constantPool.writeUTF(value);
+            index = register("U" + value);
+        }
+        return index;
+    }
+
+    /**
+     * Adds {@code CONSTANT_Class} to the constant pool if it is absent.
+     * @param internalName the internal name of the class
+     * @return index of the constant
+     * @throws IOException never as the output is in memory
+     */
+    private int classConstant(String internalName) throws IOException {
+        Integer index = constants.get("C" + internalName);
+        if (index == null) {
+            int nameIndex = utf8Constant(internalName);
+            constantPool.writeByte(CONSTANT_CLASS);
+            constantPool.writeShort(nameIndex);
+            index = register("C" + internalName);
+        }
+        return index;
+    }
+
+    /**
+     * Adds {@code CONSTANT_Methodref} to the constant pool if it is absent.
+     * @param owner the internal name of the class declaring the method
+     * @param name the name of the method
+     * @param descriptor the descriptor of the method
+     * @return index of the constant
+     * @throws IOException never as the output is in memory
+     */
+    private int methodRefConstant(String owner, String name, String descriptor) throws IOException {
+        String key = "M" + owner + '.' + name + descriptor;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int ownerIndex = classConstant(owner);
+            int nameIndex = utf8Constant(name);
+            int descriptorIndex = utf8Constant(descriptor);
+            constantPool.writeByte(CONSTANT_NAME_AND_TYPE);
+            constantPool.writeShort(nameIndex);
+            constantPool.writeShort(descriptorIndex);
+            int nameAndTypeIndex = constantCount++;
+            constantPool.writeByte(CONSTANT_METHOD_REF);
+            constantPool.writeShort(ownerIndex);
+            constantPool.writeShort(nameAndTypeIndex);
+            index = register(key);
+        }
+        return index;
+    }
+
+    /**
+     * Remembers the index of the just written constant.
+     * @param key the key of the constant
+     * @return index of the constant
+     */
+    private int register(String key) {
+        int index = constantCount++;
+        constants.put(key, index);
+        return index;
+    }
+
+    /**
+     * Converts binary name of the class to its internal name.
+     * @param binaryName the binary name
+     * @return the internal name
+     */
+    private static String getInternalName(String binaryName) {
+        return binaryName.replace('.', '/');
+    }
+
+    /**
+     * Generates the method descriptor.
+     * @param parameterTypes the parameter types
+     * @param returnType the return type
+     * @return the descriptor
+     */
+    private static String getMethodDescriptor(Class<?>[] parameterTypes, Class<?> returnType) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            appendDescriptor(descriptor, type);
+        }
+        descriptor.append(')');
+        appendDescriptor(descriptor, returnType);
+        return descriptor.toString();
+    }
+
+    /**
+     * Appends the field descriptor of the type.
+     * @param descriptor the builder to append to
+     * @param type the type
+     */
+    private static void appendDescriptor(StringBuilder descriptor, Class<?> type) {
+        while (type.isArray()) {
+            descriptor.append('[');
+            type = type.getComponentType();
+        }
+        if (!type.isPrimitive()) {
+            descriptor.append('L').append(getInternalName(type.getName())).append(';');
+        } else if (type == void.class) {
+            descriptor.append('V');
+        } else if (type == boolean.class) {
+            descriptor.append('Z');
+        } else if (type == byte.class) {
+            descriptor.append('B');
+        } else if (type == char.class) {
+            descriptor.append('C');
+        } else if (type == short.class) {
+            descriptor.append('S');
+        } else if (type == int.class) {
+            descriptor.append('I');
+        } else if (type == long.class) {
+            descriptor.append('J');
+        } else if (type == float.class) {
+            descriptor.append('F');
+        } else {
+            descriptor.append('D');
+        }
+    }
+
+    /**
+     * Finds the instruction loading the local variable of the type.
+     * @param type the type of the variable
+     * @return the opcode
+     */
+    private static int getLoadInstruction(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return ALOAD;
+        } else if (type == long.class) {
+            return LLOAD;
+        } else if (type == float.class) {
+            return FLOAD;
+        } else if (type == double.class) {
+            return DLOAD;
+        } else {
+            return ILOAD;
+        }
+    }
+
+    /**
+     * Counts local variable slots taken by the value of the type.
+     * @param type the type
+     * @return number of slots
+     */
+    private static int getSlots(Class<?> type) {
+        return type == void.class ? 0 : type == long.class || type == double.class ? 2 : 1;
+    }
+
+    /**
+     * Counts local variable slots taken by the values of the types.
+     * @param types the types
+     * @return number of slots
+     */
+    private static int getSlots(Class<?>[] types) {
+        int slots = 0;
+        for (Class<?> type : types) {
+            slots += getSlots(type);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The destination of the classes compiled or generated by {@link Implementor}.
+ * The sinks should be thread-safe, as they may be given the classes from several threads at once.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Sinks
+ * @see Implementor#implementClasses(java.util.Collection, ClassSink)
+ */
+@FunctionalInterface
+public interface ClassSink extends Closeable {
+    /**
+     * Takes the compiled class.
+     * @param className the binary name of the class
+     * @param content the content of the {@code .class}-file
+     * @throws IOException when the class can not be written.
+     */
+    void putClass(String className, byte[] content) throws IOException;
+
+    /**
+     * Finishes the output after all the classes are written. Does nothing by default.
+     * @throws IOException when the output can not be finished.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,22 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+/**
+ * The way {@link Implementor#implementJar(java.util.Collection, java.nio.file.Path)} compiles the implementations.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Implementor#withCompilationMode(CompilationMode)
+ */
+public enum CompilationMode {
+    /**
+     * The sources and the compiled classes are saved to the temporary directory next to the target {@code .jar}-file.
+     */
+    DISK,
+    /**
+     * The sources and the compiled classes are held in memory, no temporary files are created.
+     */
+    MEMORY,
+    /**
+     * The {@code .class}-files are generated directly by {@link ClassFileWriter}, the java compiler is not used.
+     */
+    BYTECODE
+}
@@ -0,0 +1,188 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * The scheduler splitting a big compilation into shards compiled concurrently by separate compilation tasks.
+ * The compiler uses one thread per task, so the shards let it use all the cores.
+ * The sources of one package are kept in one shard when possible, so the package is completed by one task;
+ * the packages are distributed among the shards by their estimated sizes, the biggest first to the least loaded shard.
+ * The packages bigger than the shard are split.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see CompilerService
+ */
+final class CompileScheduler {
+    /**
+     * The minimal number of sources in a shard, the smaller shards do not pay for starting the compilation task.
+     */
+    static final int MIN_SHARD_SOURCES = 64;
+
+    /**
+     * The compilation of a shard.
+     * @param <T> the type of the sources
+     */
+    @FunctionalInterface
+    interface ShardCompiler<T> {
+        /**
+         * Compiles the shard.
+         * @param shard the sources of the shard
+         * @throws ImplerException when the compilation failed.
+         */
+        void compile(List<T> shard) throws ImplerException;
+    }
+
+    /**
+     * There are no instances of the utilities.
+     */
+    private CompileScheduler() {
+    }
+
+    /**
+     * Gives the number of shards for the sources: one per thread of the {@link ForkJoinPool#commonPool()},
+     * but each shard has at least {@link #MIN_SHARD_SOURCES} sources.
+     * @param sources the number of sources
+     * @return the number of shards
+     */
+    static int shardCount(int sources) {
+        return Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), sources / MIN_SHARD_SOURCES));
+    }
+
+    /**
+     * Splits the sources into the shards grouped by packages and balanced by sizes.
+     * @param sources the sources to split
+     * @param packageOf gives the package of the source
+     * @param sizeOf gives the estimated size of the source
+     * @param shards the number of shards
+     * @param <T> the type of the sources
+     * @return the non-empty shards
+     */
+    static <T> List<List<T>> split(Collection<T> sources, Function<T, String> packageOf,
+                                   ToLongFunction<T> sizeOf, int shards) {
+        if (shards <= 1) {
+            return List.of(new ArrayList<>(sources));
+        }
+        long total = 0;
+        Map<String, List<T>> packages = new LinkedHashMap<>();
+        for (T source : sources) {
+            packages.computeIfAbsent(packageOf.apply(source), name -> new ArrayList<>()).add(source);
+            total += sizeOf.applyAsLong(source);
+        }
+        long limit = Math.max(1, (total + shards - 1) / shards);
+        List<Group<T>> groups = new ArrayList<>();
+        for (List<T> packageSources : packages.values()) {
+            Group<T> group = new Group<>();
+            for (T source : packageSources) {
+                long size = sizeOf.applyAsLong(source);
+                if (group.size > 0 && group.size + size > limit) {
+                    groups.add(group);
+                    group = new Group<>();
+                }
+                group.add(source, size);
+            }
+            groups.add(group);
+        }
+        groups.sort(Comparator.comparingLong((Group<T> group) -> group.size).reversed());
+        PriorityQueue<Group<T>> result = new PriorityQueue<>(shards, Comparator.comparingLong(group -> group.size));
+        for (int i = 0; i < shards; i++) {
+            result.add(new Group<>());
+        }
+        for (Group<T> group : groups) {
+            Group<T> shard = result.poll();
+            shard.addAll(group);
+            result.add(shard);
+        }
+        List<List<T>> split = new ArrayList<>(shards);
+        for (Group<T> shard : result) {
+            if (!shard.sources.isEmpty()) {
+                split.add(shard.sources);
+            }
+        }
+        return split;
+    }
+
+    /**
+     * Compiles the shards concurrently on the {@link ForkJoinPool#commonPool()} and waits for all of them.
+     * The single shard is compiled in the current thread.
+     * @param shards the shards to compile
+     * @param compiler the compilation of a shard
+     * @param <T> the type of the sources
+     * @throws ImplerException when the compilation of any of the shards failed, the other failures are suppressed.
+     */
+    static <T> void compile(List<List<T>> shards, ShardCompiler<T> compiler) throws ImplerException {
+        if (shards.size() == 1) {
+            compiler.compile(shards.get(0));
+            return;
+        }
+        List<ForkJoinTask<ImplerException>> tasks = new ArrayList<>(shards.size());
+        for (List<T> shard : shards) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                try {
+                    compiler.compile(shard);
+                    return null;
+                } catch (ImplerException e) {
+                    return e;
+                }
+            }));
+        }
+        ImplerException exception = null;
+        for (ForkJoinTask<ImplerException> task : tasks) {
+            ImplerException shardException;
+            try {
+                shardException = task.join();
+            } catch (RuntimeException e) {
+                shardException = new ImplerException("Unexpected error: " + e.getMessage(), e);
+            }
+            if (shardException != null) {
+                if (exception == null) {
+                    exception = shardException;
+                } else {
+                    exception.addSuppressed(shardException);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * The sources with their total size.
+     * @param <T> the type of the sources
+     */
+    private static final class Group<T> {
+        private final List<T> sources = new ArrayList<>();
+        private long size;
+
+        /**
+         * Adds the source to the group.
+         * @param source the source
+         * @param sourceSize the estimated size of the source
+         */
+        void add(T source, long sourceSize) {
+            sources.add(source);
+            size += sourceSize;
+        }
+
+        /**
+         * Adds all the sources of the other group to this one.
+         * @param other the other group
+         */
+        void addAll(Group<T> other) {
+            sources.addAll(other.sources);
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * The long-lived compiler service shared by all {@link Implementor}s of the process.
+ * It keeps the system compiler and warm {@link StandardJavaFileManager}s, so the class-path archives
+ * opened and indexed by the compiler are reused by the later compilations.
+ * Each file manager is used by one compilation at a time, so the service can be used from several threads.
+ * <p>
+ * The compilation with the fallback class-path is retried with it only if the first attempt failed
+ * because some classes were not found, the other failures are reported at once. The output of the failed
+ * attempt is discarded, so it never mixes with the output of the retry.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class CompilerService {
+    /**
+     * The instance of the service, created on the first use.
+     */
+    private static CompilerService instance;
+
+    /**
+     * The options of the compiler. The sources are saved in {@code UTF-8} whatever {@link SourceEncoding} is used.
+     * The implementations need no annotation processors, so the class-path is not searched for them.
+     */
+    private static final List<String> OPTIONS = List.of("-encoding", "UTF-8", "-proc:none");
+
+    /**
+     * The prefixes of the codes of the errors telling that a class or a package was not found on the class-path.
+     */
+    private static final List<String> MISSING_CLASS_ERRORS = List.of(
+            "compiler.err.cant.resolve", "compiler.err.doesnt.exist", "compiler.err.cant.access");
+
+    private final JavaCompiler compiler;
+    private final Deque<StandardJavaFileManager> fileManagers = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Constructs the service for the given compiler.
+     * @param compiler the compiler to use
+     */
+    private CompilerService(JavaCompiler compiler) {
+        this.compiler = compiler;
+    }
+
+    /**
+     * Gives the shared instance of the service.
+     * @return the compiler service
+     * @throws ImplerException when no java compiler found in the system.
+     */
+    static synchronized CompilerService getInstance() throws ImplerException {
+        if (instance == null) {
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new ImplerException("No java compiler found in the system.");
+            }
+            instance = new CompilerService(compiler);
+        }
+        return instance;
+    }
+
+    /**
+     * Compiles the source files and saves the compiled classes to the directory.
+     * @param sources the source files to compile
+     * @param classPath the class-path for the compilation
+     * @param fallbackClassPath the class-path to compile with if the compilation with the first one fails,
+     *                          or {@code null} if there is no such class-path
+     * @param outputDirectory the directory to save the compiled classes to
+     * @throws ImplerException when the compilation failed.
+     */
+    void compile(Collection<Path> sources, List<Path> classPath, List<Path> fallbackClassPath, Path outputDirectory)
+            throws ImplerException {
+        StandardJavaFileManager fileManager = acquire(classPath);
+        try {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(outputDirectory));
+            Iterable<? extends JavaFileObject> files = fileManager.getJavaFileObjectsFromPaths(sources);
+            if (fallbackClassPath == null) {
+                run(fileManager, files);
+                return;
+            }
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            OutputRecorder recorder = new OutputRecorder(fileManager);
+            if (!run(recorder, files, diagnostics)) {
+                checkMissingClasses(diagnostics);
+                recorder.discard();
+                setClassPath(fileManager, fallbackClassPath);
+                run(fileManager, files);
+            }
+        } catch (IOException e) {
+            throw new ImplerException("Can not set output directory: " + e.getMessage());
+        } finally {
+            resetOutputDirectory(fileManager);
+            release(fileManager);
+        }
+    }
+
+    /**
+     * Resets the output directory to the default one, so the pooled file manager does not keep
+     * the directory that can be deleted or belong to the closed file system.
+     * @param fileManager the file manager to reset
+     */
+    private static void resetOutputDirectory(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, null);
+        } catch (IOException e) {
+            System.err.println("Can not reset output directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compiles the source files held in memory and gives the compiled classes to the sink.
+     * @param sources the source files to compile
+     * @param classPath the class-path for the compilation
+     * @param fallbackClassPath the class-path to compile with if the compilation with the first one fails,
+     *                          or {@code null} if there is no such class-path
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when the compilation failed.
+     */
+    void compile(Collection<? extends JavaFileObject> sources, List<Path> classPath, List<Path> fallbackClassPath,
+                 ClassSink sink) throws ImplerException {
+        StandardJavaFileManager fileManager = acquire(classPath);
+        try {
+            if (fallbackClassPath == null) {
+                run(new MemoryJavaFileManager(fileManager, sink), sources);
+                return;
+            }
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            if (run(new MemoryJavaFileManager(fileManager, Sinks.memoryClasses(classes)), sources, diagnostics)) {
+                for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                    sink.putClass(entry.getKey(), entry.getValue());
+                }
+                return;
+            }
+            checkMissingClasses(diagnostics);
+            setClassPath(fileManager, fallbackClassPath);
+            run(new MemoryJavaFileManager(fileManager, sink), sources);
+        } catch (IOException e) {
+            throw new ImplerException("Can not write class: " + e.getMessage());
+        } finally {
+            release(fileManager);
+        }
+    }
+
+    /**
+     * Checks if the failed compilation can succeed with the fallback class-path, that is if some of its errors
+     * tell that a class or a package was not found. Otherwise, prints the diagnostics as the compiler does.
+     * @param diagnostics the diagnostics of the failed compilation
+     * @throws ImplerException when the compilation failed for the other reasons.
+     */
+    private static void checkMissingClasses(DiagnosticCollector<JavaFileObject> diagnostics) throws ImplerException {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            String code = diagnostic.getCode();
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && code != null
+                    && MISSING_CLASS_ERRORS.stream().anyMatch(code::startsWith)) {
+                return;
+            }
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            System.err.println(diagnostic);
+        }
+        throw new ImplerException("Can not compile the classes.");
+    }
+
+    /**
+     * The file manager remembering the files opened for output by the compilation, so the output of the failed
+     * compilation can be deleted. Only these files are deleted, as the output directory can be shared
+     * with the other compilations.
+     */
+    private static final class OutputRecorder extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final List<Path> outputs = new ArrayList<>();
+
+        /**
+         * Constructs the file manager.
+         * @param fileManager the file manager to delegate to
+         */
+        OutputRecorder(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        /**
+         * Gives the output file and remembers it.
+         * @param location the output location
+         * @param className the binary name of the class
+         * @param kind the kind of the file
+         * @param sibling the file hinting the placement of the output
+         * @return the output file
+         * @throws IOException when the file can not be created.
+         */
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) throws IOException {
+            JavaFileObject file = super.getJavaFileForOutput(location, className, kind, sibling);
+            outputs.add(fileManager.asPath(file));
+            return file;
+        }
+
+        /**
+         * Deletes the output files.
+         * @throws ImplerException when the files can not be deleted.
+         */
+        void discard() throws ImplerException {
+            try {
+                for (Path file : outputs) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                throw new ImplerException("Can not delete class: " + e.getMessage());
+            }
+            outputs.clear();
+        }
+    }
+
+    /**
+     * Runs one compilation task.
+     * @param fileManager the file manager to use
+     * @param sources the source files to compile
+     * @throws ImplerException when the compilation failed.
+     */
+    private void run(JavaFileManager fileManager, Iterable<? extends JavaFileObject> sources) throws ImplerException {
+        if (!run(fileManager, sources, null)) {
+            throw new ImplerException("Can not compile the classes.");
+        }
+    }
+
+    /**
+     * Runs one compilation task.
+     * @param fileManager the file manager to use
+     * @param sources the source files to compile
+     * @param diagnostics the collector of the diagnostics of the compiler
+     *                    or {@code null} if they should be printed to {@link System#err}
+     * @return if the compilation succeeded
+     * @throws ImplerException when the compiler failed unexpectedly, such as when it can not read the class-path.
+     */
+    private boolean run(JavaFileManager fileManager, Iterable<? extends JavaFileObject> sources,
+                        DiagnosticCollector<JavaFileObject> diagnostics) throws ImplerException {
+        Writer out = diagnostics != null ? Writer.nullWriter() : null;
+        try {
+            return compiler.getTask(out, fileManager, diagnostics, OPTIONS, null, sources).call();
+        } catch (RuntimeException e) {
+            throw new ImplerException("Can not compile the classes: " + e, e);
+        }
+    }
+
+    /**
+     * Takes a warm file manager from the pool or creates a new one if all of them are busy.
+     * @param classPath the class-path to set to the file manager
+     * @return the file manager
+     * @throws ImplerException when can not set the class-path.
+     */
+    private StandardJavaFileManager acquire(List<Path> classPath) throws ImplerException {
+        StandardJavaFileManager fileManager = fileManagers.pollFirst();
+        if (fileManager == null) {
+            fileManager = compiler.getStandardFileManager(null, null, null);
+        }
+        try {
+            setClassPath(fileManager, classPath);
+        } catch (ImplerException e) {
+            release(fileManager);
+            throw e;
+        }
+        return fileManager;
+    }
+
+    /**
+     * Sets the class-path of the file manager.
+     * @param fileManager the file manager
+     * @param classPath the class-path to set
+     * @throws ImplerException when can not set the class-path.
+     */
+    private static void setClassPath(StandardJavaFileManager fileManager, List<Path> classPath) throws ImplerException {
+        try {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ImplerException("Can not set class-path: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the file manager to the pool.
+     * The file manager is not closed, so its opened archives stay cached.
+     * @param fileManager the file manager to return
+     */
+    private void release(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.flush();
+        } catch (IOException e) {
+            System.err.println("Can not flush file manager: " + e.getMessage());
+        }
+        fileManagers.offerFirst(fileManager);
+    }
+}
@@ -0,0 +1,223 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import javax.tools.JavaFileObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiler worker process started by {@link CompilerWorkerPool}.
+ * It reads the compilation requests from the standard input, compiles them by the {@link CompilerService}
+ * of the worker process and writes the responses to the standard output.
+ * The diagnostics of the compiler are printed to the standard error. The worker exits when its input is closed.
+ * <p>
+ * The request consists of the class-path, the fallback class-path and the sources with the binary names
+ * of their classes. The response consists of the heap retained by the worker, the success flag and either
+ * the message of the failure or the compiled classes. The retained heap is the heap used after the most recent
+ * garbage collection summed over the heap memory pools, so it does not count the garbage that is not collected yet.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public final class CompilerWorker {
+    /**
+     * The binary name of the class compiled when the worker starts, so the compiler is warm for the first request.
+     */
+    private static final String WARM_UP_CLASS = "CompilerWorkerWarmUp";
+
+    /**
+     * There are no instances of the worker.
+     */
+    private CompilerWorker() {
+    }
+
+    /**
+     * Serves the compilation requests until the standard input is closed.
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        warmUp();
+        try {
+            while (true) {
+                List<Path> classPath;
+                List<Path> fallbackClassPath;
+                List<JavaFileObject> sources;
+                try {
+                    classPath = readPaths(in);
+                    fallbackClassPath = in.readBoolean() ? readPaths(in) : null;
+                    sources = readSources(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                serve(classPath, fallbackClassPath, sources, out);
+            }
+        } catch (IOException e) {
+            System.err.println("Compiler worker can not communicate: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compiles the trivial class, so the classes of the compiler are loaded before the first request.
+     */
+    private static void warmUp() {
+        try {
+            CompilerService.getInstance().compile(
+                    List.of(new MemoryJavaFileManager.SourceFile(WARM_UP_CLASS, "class " + WARM_UP_CLASS + " {}")),
+                    List.of(), null, Sinks.callbackClasses((className, content) -> { }));
+        } catch (ImplerException e) {
+            System.err.println("Can not warm up compiler: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compiles the sources of one request and writes the response.
+     * @param classPath the class-path for the compilation
+     * @param fallbackClassPath the class-path to compile with if the compilation with the first one fails,
+     *                          or {@code null} if there is no such class-path
+     * @param sources the sources to compile
+     * @param out the output of the responses
+     * @throws IOException when the response can not be written.
+     */
+    private static void serve(List<Path> classPath, List<Path> fallbackClassPath, List<JavaFileObject> sources,
+                              DataOutputStream out) throws IOException {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        String failure = null;
+        try {
+            CompilerService.getInstance().compile(sources, classPath, fallbackClassPath, Sinks.memoryClasses(classes));
+        } catch (ImplerException e) {
+            failure = e.getMessage();
+        } catch (RuntimeException e) {
+            failure = "Unexpected error: " + e.getMessage();
+        }
+        out.writeLong(retainedHeap());
+        out.writeBoolean(failure == null);
+        if (failure != null) {
+            out.writeUTF(failure);
+        } else {
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBytes(out, entry.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Gives the heap used after the most recent garbage collection summed over the heap memory pools.
+     * The pools that do not support the collection usage are skipped.
+     * @return the retained heap in bytes
+     */
+    private static long retainedHeap() {
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                retained += usage.getUsed();
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * Writes the list of paths.
+     * @param out the output
+     * @param paths the paths to write
+     * @throws IOException when the paths can not be written.
+     */
+    static void writePaths(DataOutputStream out, List<Path> paths) throws IOException {
+        out.writeInt(paths.size());
+        for (Path path : paths) {
+            out.writeUTF(path.toString());
+        }
+    }
+
+    /**
+     * Reads the list of paths written by {@link #writePaths(DataOutputStream, List)}.
+     * @param in the input
+     * @return the read paths
+     * @throws IOException when the paths can not be read.
+     */
+    private static List<Path> readPaths(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Path> paths = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            paths.add(Path.of(in.readUTF()));
+        }
+        return paths;
+    }
+
+    /**
+     * Writes the source of the class.
+     * @param out the output
+     * @param className the binary name of the class
+     * @param source the source code of the class
+     * @throws IOException when the source can not be written.
+     */
+    static void writeSource(DataOutputStream out, String className, CharSequence source) throws IOException {
+        out.writeUTF(className);
+        writeBytes(out, source.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the sources of the request, written by {@link #writeSource(DataOutputStream, String, CharSequence)}
+     * after their number.
+     * @param in the input
+     * @return the read sources
+     * @throws IOException when the sources can not be read.
+     */
+    private static List<JavaFileObject> readSources(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<JavaFileObject> sources = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String className = in.readUTF();
+            sources.add(new MemoryJavaFileManager.SourceFile(className,
+                    new String(readBytes(in), StandardCharsets.UTF_8)));
+        }
+        return sources;
+    }
+
+    /**
+     * Writes the byte array after its length.
+     * @param out the output
+     * @param bytes the bytes to write
+     * @throws IOException when the bytes can not be written.
+     */
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the byte array written by {@link #writeBytes(DataOutputStream, byte[])}.
+     * @param in the input
+     * @return the read bytes
+     * @throws IOException when the bytes can not be read.
+     */
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
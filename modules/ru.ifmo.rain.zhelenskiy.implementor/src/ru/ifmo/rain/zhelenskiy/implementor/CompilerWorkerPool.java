@@ -0,0 +1,372 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import javax.tools.JavaFileObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The pool of the {@link CompilerWorker} processes compiling the implementations out of the current process.
+ * The compiler keeps growing the heap and the metaspace of the process it runs in, so the workers are recycled
+ * after the given number of compilations or when the heap they retain after a compilation exceeds the given threshold.
+ * The retained heap is the heap used after the most recent garbage collection of the worker, summed over its heap
+ * memory pools, so the garbage left by the compilation does not count.
+ * The recycled worker is replaced by the new one started at once, so it is warm by the next compilation.
+ * Each compilation has the timeout, the worker that does not respond in time is killed and replaced.
+ * <p>
+ * The sources are sent to the workers through their standard input and the compiled classes are received
+ * from their standard output, the diagnostics of the compilers are printed to the standard error of this process.
+ * The workers run the same Java with the same class-path or module-path as this process.
+ * The class-path entries that are not in the default file system are not visible to the workers, so they are skipped.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Implementor#withCompilerWorkers(CompilerWorkerPool)
+ */
+public final class CompilerWorkerPool implements Closeable {
+    /**
+     * The command starting a worker.
+     */
+    private final List<String> command;
+    private final int maxCompilations;
+    private final long maxHeapBytes;
+    private final Duration timeout;
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    /**
+     * The daemon thread killing the workers that do not respond in time.
+     */
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "compiler-worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    /**
+     * Starts the workers with the default options of the Java virtual machine.
+     * @param workers the number of the workers
+     * @param maxCompilations the number of compilations after which the worker is recycled
+     * @param maxHeapBytes the heap retained after a compilation above which the worker is recycled
+     * @param timeout the timeout of each compilation
+     * @throws IOException when any of the workers can not be started.
+     */
+    public CompilerWorkerPool(int workers, int maxCompilations, long maxHeapBytes, Duration timeout)
+            throws IOException {
+        this(workers, maxCompilations, maxHeapBytes, timeout, List.of());
+    }
+
+    /**
+     * Starts the workers.
+     * @param workers the number of the workers
+     * @param maxCompilations the number of compilations after which the worker is recycled
+     * @param maxHeapBytes the heap retained after a compilation above which the worker is recycled
+     * @param timeout the timeout of each compilation
+     * @param jvmOptions the options of the Java virtual machines of the workers, such as {@code -Xmx256m}
+     * @throws IOException when any of the workers can not be started.
+     */
+    public CompilerWorkerPool(int workers, int maxCompilations, long maxHeapBytes, Duration timeout,
+                              List<String> jvmOptions) throws IOException {
+        if (workers <= 0 || maxCompilations <= 0 || maxHeapBytes <= 0 || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Invalid compiler worker pool settings");
+        }
+        this.command = createCommand(jvmOptions);
+        this.maxCompilations = maxCompilations;
+        this.maxHeapBytes = maxHeapBytes;
+        this.timeout = timeout;
+        watchdog.setRemoveOnCancelPolicy(true);
+        try {
+            for (int i = 0; i < workers; i++) {
+                Worker worker = new Worker();
+                this.workers.add(worker);
+                worker.start();
+                idle.add(worker);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the command starting a worker with the Java and the class-path or the module-path of this process.
+     * @param jvmOptions the options of the Java virtual machine
+     * @return the command
+     * @throws IOException when the module-path of the worker is unknown.
+     */
+    private static List<String> createCommand(List<String> jvmOptions) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        Module module = CompilerWorker.class.getModule();
+        if (module.isNamed()) {
+            String modulePath = System.getProperty("jdk.module.path");
+            if (modulePath == null) {
+                throw new IOException("Can not find module path of " + module.getName());
+            }
+            command.addAll(List.of("--module-path", modulePath,
+                    "-m", module.getName() + "/" + CompilerWorker.class.getName()));
+        } else {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), CompilerWorker.class.getName()));
+        }
+        return command;
+    }
+
+    /**
+     * Compiles the in-memory sources by a worker and gives the compiled classes to the sink.
+     * Waits for an idle worker if all of them are busy.
+     * @param sources the source files created by {@link MemoryJavaFileManager}
+     * @param classPath the class-path for the compilation
+     * @param fallbackClassPath the class-path to compile with if the compilation with the first one fails,
+     *                          or {@code null} if there is no such class-path
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when<ul>
+     *     <li>The compilation failed;</li>
+     *     <li>The compilation timed out;</li>
+     *     <li>The worker failed or can not be started;</li>
+     *     <li>The compiled classes can not be written;</li>
+     *     <li>The pool is closed.</li>
+     * </ul>
+     */
+    void compile(Collection<? extends JavaFileObject> sources, List<Path> classPath, List<Path> fallbackClassPath,
+                 ClassSink sink) throws ImplerException {
+        Map<String, byte[]> classes;
+        Worker worker = acquire();
+        try {
+            classes = worker.compile(sources, classPath, fallbackClassPath);
+        } finally {
+            release(worker);
+        }
+        try {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                sink.putClass(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new ImplerException("Can not write class: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Takes an idle worker, starting its process if it is not running.
+     * @return the worker
+     * @throws ImplerException when the pool is closed, the worker can not be started or the thread is interrupted.
+     */
+    private Worker acquire() throws ImplerException {
+        Worker worker;
+        try {
+            worker = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImplerException("Interrupted while waiting for compiler worker");
+        }
+        try {
+            if (closed) {
+                throw new ImplerException("Compiler worker pool is closed");
+            }
+            worker.ensureStarted();
+            return worker;
+        } catch (IOException e) {
+            idle.add(worker);
+            throw new ImplerException("Can not start compiler worker: " + e.getMessage());
+        } catch (ImplerException e) {
+            idle.add(worker);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the worker to the pool, replacing its process if it is broken, closed or should be recycled.
+     * @param worker the worker to return
+     */
+    private void release(Worker worker) {
+        if (closed) {
+            worker.stop();
+        } else if (worker.isBroken() || worker.compilations >= maxCompilations || worker.retainedHeap > maxHeapBytes) {
+            worker.stop();
+            try {
+                worker.start();
+            } catch (IOException e) {
+                // the worker is started again when it is acquired
+            }
+        }
+        idle.add(worker);
+    }
+
+    /**
+     * Stops the workers when their compilations in progress are done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * The slot of the pool running one worker process at a time.
+     */
+    private final class Worker {
+        private Process process;
+        private DataInputStream in;
+        private DataOutputStream out;
+        /**
+         * The number of compilations done by the current process.
+         */
+        private int compilations;
+        /**
+         * The heap retained by the current process after its last compilation.
+         */
+        private long retainedHeap;
+        private boolean broken;
+
+        /**
+         * Starts the new process of the worker.
+         * @throws IOException when the process can not be started.
+         */
+        synchronized void start() throws IOException {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            compilations = 0;
+            retainedHeap = 0;
+            broken = false;
+        }
+
+        /**
+         * Starts the process of the worker if it is not running.
+         * @throws IOException when the process can not be started.
+         */
+        synchronized void ensureStarted() throws IOException {
+            if (process == null || !process.isAlive()) {
+                stop();
+                start();
+            }
+        }
+
+        /**
+         * Checks if the process of the worker failed or is not running.
+         * @return if the process should be replaced
+         */
+        synchronized boolean isBroken() {
+            return broken || process == null || !process.isAlive();
+        }
+
+        /**
+         * Stops the process of the worker by closing its input, kills it if it does not exit in a second.
+         */
+        synchronized void stop() {
+            if (process == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                // the process has already exited
+            }
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            process = null;
+        }
+
+        /**
+         * Sends the sources to the process and waits for the compiled classes.
+         * The sources are generated before anything is sent, so the failure to generate them leaves the process
+         * ready for the next compilation.
+         * @param sources the source files to compile
+         * @param classPath the class-path for the compilation
+         * @param fallbackClassPath the fallback class-path or {@code null}
+         * @return the compiled classes by their binary names
+         * @throws ImplerException when the sources can not be generated, the compilation failed, timed out
+         * or the process failed.
+         */
+        synchronized Map<String, byte[]> compile(Collection<? extends JavaFileObject> sources, List<Path> classPath,
+                                                 List<Path> fallbackClassPath) throws ImplerException {
+            List<CharSequence> contents = new ArrayList<>(sources.size());
+            for (JavaFileObject source : sources) {
+                try {
+                    contents.add(source.getCharContent(true));
+                } catch (IOException e) {
+                    throw new ImplerException("Can not generate source: " + e.getMessage());
+                }
+            }
+            Process current = process;
+            ScheduledFuture<?> kill = watchdog.schedule(current::destroyForcibly,
+                    timeout.toMillis(), TimeUnit.MILLISECONDS);
+            String failure;
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            try {
+                CompilerWorker.writePaths(out, visible(classPath));
+                out.writeBoolean(fallbackClassPath != null);
+                if (fallbackClassPath != null) {
+                    CompilerWorker.writePaths(out, visible(fallbackClassPath));
+                }
+                out.writeInt(sources.size());
+                int index = 0;
+                for (JavaFileObject source : sources) {
+                    CompilerWorker.writeSource(out, MemoryJavaFileManager.getClassName(source), contents.get(index++));
+                }
+                out.flush();
+                retainedHeap = in.readLong();
+                compilations++;
+                if (in.readBoolean()) {
+                    failure = null;
+                    for (int i = in.readInt(); i > 0; i--) {
+                        classes.put(in.readUTF(), CompilerWorker.readBytes(in));
+                    }
+                } else {
+                    failure = in.readUTF();
+                }
+            } catch (IOException e) {
+                broken = true;
+                current.destroyForcibly();
+                if (kill.isDone()) {
+                    throw new ImplerException("Compilation timed out after " + timeout.toMillis() + " ms");
+                }
+                throw new ImplerException("Compiler worker failed: " + e.getMessage());
+            } finally {
+                kill.cancel(false);
+            }
+            if (failure != null) {
+                throw new ImplerException(failure);
+            }
+            return classes;
+        }
+
+        /**
+         * Filters out the class-path entries that are not visible to the process.
+         * @param classPath the class-path
+         * @return the entries in the default file system
+         */
+        private List<Path> visible(List<Path> classPath) {
+            return classPath.stream()
+                    .filter(path -> path.getFileSystem() == FileSystems.getDefault())
+                    .collect(Collectors.toList());
+        }
+    }
+}
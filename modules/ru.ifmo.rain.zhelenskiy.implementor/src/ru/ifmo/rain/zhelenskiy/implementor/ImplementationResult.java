@@ -0,0 +1,67 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import java.nio.file.Path;
+
+/**
+ * The result of implementation of a single type token in a batch.
+ * It contains:
+ * <ul>
+ *     <li>The implemented type token;</li>
+ *     <li>The path to the generated file if the implementation succeeded;</li>
+ *     <li>The {@link ImplerException} if the implementation failed.</li>
+ * </ul>
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Implementor#implementAll(java.util.Collection, Path)
+ */
+public class ImplementationResult {
+    private final Class<?> token;
+    private final Path file;
+    private final ImplerException error;
+
+    /**
+     * Constructs the result of implementation.
+     * @param token the implemented type token
+     * @param file the generated file or {@code null} if the implementation failed
+     * @param error the occurred error or {@code null} if the implementation succeeded
+     */
+    ImplementationResult(Class<?> token, Path file, ImplerException error) {
+        this.token = token;
+        this.file = file;
+        this.error = error;
+    }
+
+    /**
+     * Gives access to the implemented type token.
+     * @return the type token
+     */
+    public Class<?> getToken() {
+        return token;
+    }
+
+    /**
+     * Gives access to the generated file.
+     * @return the path to the generated file or {@code null} if the implementation failed
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gives access to the occurred error.
+     * @return the error or {@code null} if the implementation succeeded
+     */
+    public ImplerException getError() {
+        return error;
+    }
+
+    /**
+     * Checks if the implementation succeeded.
+     * @return if no error occurred
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -7,25 +7,41 @@ import info.kgeorgiy.java.advanced.implementor.JarImpler;
 //import org.jetbrains.annotations.NotNull;
 //import org.jetbrains.annotations.Nullable;
 
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
-import java.io.BufferedWriter;
+import javax.tools.JavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.CodeSource;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.function.IntFunction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
-import java.util.jar.JarOutputStream;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 /**
  * This class implements interfaces and classes given by user.
@@ -35,6 +51,23 @@ import java.util.zip.ZipEntry;
  *     that implements the given class and saves {@code .java}-file</li>
  *     <li>Method {@link Implementor#implementJar(Class, Path)}
  *     that implements the given class and creates runnable {@code .jar}-file.</li>
+ *     <li>Method {@link Implementor#implementAll(Collection, Path)}
+ *     that implements the given classes in parallel and saves their {@code .java}-files</li>
+ *     <li>Method {@link Implementor#implementJar(Collection, Path)}
+ *     that implements the given classes and creates a single {@code .jar}-file with all of them.</li>
+ *     <li>Method {@link Implementor#implementJar(Collection, OutputStream)}
+ *     that implements the given classes and writes a single {@code .jar}-file with all of them to the stream.</li>
+ *     <li>Method {@link Implementor#implementJarWithHash(Collection, Path)}
+ *     that creates a single {@code .jar}-file as well and gives its content hash.</li>
+ *     <li>Method {@link Implementor#implementSources(Collection, Path)}
+ *     that implements the given classes and saves all their sources to a single {@code .zip}-file.</li>
+ *     <li>Method {@link Implementor#appendJar(Collection, Path)}
+ *     that adds the implementations of the given classes to the existing {@code .jar}-file.</li>
+ *     <li>Methods {@link Implementor#implement(Class, SourceSink)} and
+ *     {@link Implementor#implementClasses(Collection, ClassSink)}
+ *     that give the sources and the compiled classes to the given sinks.</li>
+ *     <li>Method {@link Implementor#newStub(Class)}
+ *     that implements the given class in memory and gives its shared instance.</li>
  *     <li>Static method {@link Implementor#main(String[])}
  *     that gives the command line interface for using
  *     {@link Implementor#implement(Class, Path)} and {@link Implementor#implementJar(Class, Path)}.</li>
@@ -45,69 +78,414 @@ import java.util.zip.ZipEntry;
  * @author zhelenskiy
  */
 public class Implementor implements Impler, JarImpler {
+    /**
+     * The way {@link #implementJar(Collection, Path)} compiles the implementations.
+     */
+    private CompilationMode compilationMode = CompilationMode.DISK;
+
+    /**
+     * The way {@link #implement(Class, Path)} writes non-ASCII characters.
+     */
+    private SourceEncoding sourceEncoding = SourceEncoding.ESCAPED;
+
+    /**
+     * If {@link #implement(Class, Path)} encodes the sources to direct buffers.
+     */
+    private boolean directBuffers;
+
+    /**
+     * The level the entries of {@code .jar}-files are deflated with.
+     */
+    private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * The entries of {@code .jar}-files not bigger than this are stored without compression.
+     */
+    private int storedThreshold;
+
+    /**
+     * If the entries of {@code .jar}-files are deflated in parallel.
+     */
+    private boolean parallelDeflate = true;
+
+    /**
+     * If {@link CompilationMode#DISK} mode uses {@link MemoryFileSystem} as the scratch space.
+     */
+    private boolean memoryScratch = true;
+
+    /**
+     * If the {@code .jar}-files and the source archives are reproducible.
+     */
+    private boolean reproducible;
+
+    /**
+     * If the {@code .jar}-files have the package index.
+     */
+    private boolean jarIndex;
+
+    /**
+     * If big batches of implementations are compiled by several concurrent compilation tasks.
+     */
+    private boolean parallelCompilation = true;
+
+    /**
+     * The pool of the processes compiling the implementations or {@code null} if they are compiled in this process.
+     */
+    private CompilerWorkerPool compilerWorkers;
+
+    /**
+     * Classes defined by {@link #getStubClass(Class)} by their type tokens.
+     * The cache is kept by the tokens themselves, so it does not prevent unloading of their class loaders.
+     */
+    private static final ClassValue<AtomicReference<Class<?>>> STUB_CLASSES = new ClassValue<>() {
+        @Override
+        protected AtomicReference<Class<?>> computeValue(Class<?> token) {
+            return new AtomicReference<>();
+        }
+    };
+
+    /**
+     * Instances created by {@link #newStub(Class)} by their type tokens.
+     * The cache is kept by the tokens themselves, so it does not prevent unloading of their class loaders.
+     */
+    private static final ClassValue<AtomicReference<Object>> STUBS = new ClassValue<>() {
+        @Override
+        protected AtomicReference<Object> computeValue(Class<?> token) {
+            return new AtomicReference<>();
+        }
+    };
+
+    /**
+     * Constructs {@link Implementor} with default settings.
+     */
+    public Implementor() {
+    }
+
+    /**
+     * Constructs copy of the given {@link Implementor}.
+     * @param other the {@link Implementor} whose settings to copy
+     */
+    private Implementor(Implementor other) {
+        this.compilationMode = other.compilationMode;
+        this.sourceEncoding = other.sourceEncoding;
+        this.directBuffers = other.directBuffers;
+        this.deflateLevel = other.deflateLevel;
+        this.storedThreshold = other.storedThreshold;
+        this.parallelDeflate = other.parallelDeflate;
+        this.memoryScratch = other.memoryScratch;
+        this.reproducible = other.reproducible;
+        this.jarIndex = other.jarIndex;
+        this.parallelCompilation = other.parallelCompilation;
+        this.compilerWorkers = other.compilerWorkers;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given compilation mode.
+     * @param mode the way {@link #implementJar(Collection, Path)} compiles the implementations
+     * @return the new {@link Implementor}
+     */
+    public Implementor withCompilationMode(CompilationMode mode) {
+        Implementor copy = new Implementor(this);
+        copy.compilationMode = Objects.requireNonNull(mode);
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given encoding of the sources.
+     * @param encoding the way {@link #implement(Class, Path)} writes non-ASCII characters
+     * @return the new {@link Implementor}
+     */
+    public Implementor withSourceEncoding(SourceEncoding encoding) {
+        Implementor copy = new Implementor(this);
+        copy.sourceEncoding = Objects.requireNonNull(encoding);
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given kind of the buffers for the sources.
+     * @param direct if {@link #implement(Class, Path)} should encode the sources to direct buffers
+     * @return the new {@link Implementor}
+     * @see ByteBuffer#allocateDirect(int)
+     */
+    public Implementor withDirectBuffers(boolean direct) {
+        Implementor copy = new Implementor(this);
+        copy.directBuffers = direct;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given deflate level of {@code .jar}-files.
+     * @param level the deflate level from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}
+     *              or {@link Deflater#DEFAULT_COMPRESSION}, the entries are stored if it is {@link Deflater#NO_COMPRESSION}
+     * @return the new {@link Implementor}
+     * @throws IllegalArgumentException when the level is invalid.
+     */
+    public Implementor withDeflateLevel(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid deflate level: " + level);
+        }
+        Implementor copy = new Implementor(this);
+        copy.deflateLevel = level;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given maximal size of stored entries of {@code .jar}-files.
+     * Deflating of tiny classes is slower than storing and hardly makes them smaller.
+     * @param bytes the entries of this size or smaller are stored without compression
+     * @return the new {@link Implementor}
+     */
+    public Implementor withStoredThreshold(int bytes) {
+        Implementor copy = new Implementor(this);
+        copy.storedThreshold = bytes;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given way to compress the entries of {@code .jar}-files.
+     * @param parallel if the entries should be deflated in parallel on the {@link ForkJoinPool#commonPool()}
+     * @return the new {@link Implementor}
+     */
+    public Implementor withParallelDeflate(boolean parallel) {
+        Implementor copy = new Implementor(this);
+        copy.parallelDeflate = parallel;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given scratch space of {@link CompilationMode#DISK} mode.
+     * The scratch file system is dropped after the compilation, so no temporary files are left
+     * even if the process is killed.
+     * @param memory if the sources and the classes should be saved to the in-memory file system
+     *               instead of the temporary directory on the disk
+     * @return the new {@link Implementor}
+     */
+    public Implementor withMemoryScratch(boolean memory) {
+        Implementor copy = new Implementor(this);
+        copy.memoryScratch = memory;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given reproducibility of {@code .jar}-files and source archives.
+     * The reproducible files depend only on the tokens and the settings, so the same stubs give the same bytes:
+     * <ul>
+     *     <li>All the entries have the same fixed time;</li>
+     *     <li>The entries are sorted by names, the manifest goes first;</li>
+     *     <li>The methods and the constructors are chosen and written in the order of their signatures
+     *     instead of the order of reflection, which differs from run to run.</li>
+     * </ul>
+     * The compression is set by {@link #withDeflateLevel(int)} and {@link #withStoredThreshold(int)} and does not
+     * depend on {@link #withParallelDeflate(boolean)}. The entries added by {@link #appendJar(Collection, Path)}
+     * have the fixed time too, but they are written after the existing ones.
+     * @param reproducible if the files should be reproducible
+     * @return the new {@link Implementor}
+     * @see #implementJarWithHash(Collection, Path)
+     */
+    public Implementor withReproducible(boolean reproducible) {
+        Implementor copy = new Implementor(this);
+        copy.reproducible = reproducible;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given indexing of {@code .jar}-files.
+     * The index {@code META-INF/INDEX.LIST} lists the packages of the {@code .jar}-file, so the classes can be found
+     * without searching every {@code .jar}-file of the class-path, see {@link IndexedJarClassLoader}.
+     * The index refers to the {@code .jar}-file by its name, so it is not written to the streams and the channels.
+     * {@link #appendJar(Collection, Path)} updates the index if it is enabled or the {@code .jar}-file already has it.
+     * @param index if the {@code .jar}-files should have the package index
+     * @return the new {@link Implementor}
+     */
+    public Implementor withJarIndex(boolean index) {
+        Implementor copy = new Implementor(this);
+        copy.jarIndex = index;
+        return copy;
+    }
 
     /**
-     * This class is buffered writer, that replaces non-ASCII characters with {@code \\u****}.
-     * @see java.io.BufferedWriter
+     * Creates {@link Implementor} with the same settings and the given way to compile big batches of implementations.
+     * The parallel compilation splits the batch into shards by packages, compiles them concurrently
+     * on the {@link ForkJoinPool#commonPool()} and merges the compiled classes in the order of the tokens.
+     * The batches smaller than {@value CompileScheduler#MIN_SHARD_SOURCES} tokens per thread
+     * are compiled by one task anyway.
+     * @param parallel if big batches should be compiled by several concurrent compilation tasks
+     * @return the new {@link Implementor}
+     * @see CompileScheduler
+     */
+    public Implementor withParallelCompilation(boolean parallel) {
+        Implementor copy = new Implementor(this);
+        copy.parallelCompilation = parallel;
+        return copy;
+    }
+
+    /**
+     * Creates {@link Implementor} with the same settings and the given processes compiling the implementations.
+     * The pool is not closed by the {@link Implementor}.
+     * @param workers the pool of the worker processes or {@code null} to compile in this process
+     * @return the new {@link Implementor}
+     */
+    public Implementor withCompilerWorkers(CompilerWorkerPool workers) {
+        Implementor copy = new Implementor(this);
+        copy.compilerWorkers = workers;
+        return copy;
+    }
+
+    /**
+     * This class is writer, that replaces non-ASCII characters with {@code \\u****} and passes the rest to the underlying writer.
+     * Runs of ASCII characters are passed to the underlying writer at once without copying.
      * @author zhelenskiy
      * @version 1.0
      */
-    private static class EscapeWriter extends BufferedWriter {
+    private static class EscapeWriter extends Writer {
+        /**
+         * The hexadecimal digits by their values.
+         */
+        private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+        /**
+         * The underlying writer the escaped characters are passed to.
+         */
+        private final Writer out;
+        /**
+         * The buffer for a single escape. Its prefix {@code \\u} is never changed.
+         */
+        private final char[] escape = {'\\', 'u', '0', '0', '0', '0'};
 
         /**
-         * Constructs {@link EscapeWriter} with given internal {@link BufferedWriter}.
-         * @param writer An internal common {@link BufferedWriter} to be called when {@code write} called.
+         * Constructs {@link EscapeWriter} with given internal {@link Writer}.
+         * @param writer An internal common {@link Writer} to be called when {@code write} called.
          */
-        protected EscapeWriter(BufferedWriter writer) {
+        protected EscapeWriter(Writer writer) {
             super(writer);
+            this.out = writer;
         }
 
         /**
-         * Converts given string to unicode escaping
-         *
-         * @param in {@link String} to convert
-         * @return converted string
+         * Writes the unicode escape of the character with underlying {@link Writer}.
+         * @param c the character to escape
+         * @throws IOException when underlying writer can not write the escape.
          */
-        private static String escape(String in) {
-            StringBuilder b = new StringBuilder();
-            for (char c : in.toCharArray()) {
-                if (c >= 128) {
-                    b.append(String.format("\\u%04X", (int) c));
-                } else {
-                    b.append(c);
+        private void writeEscape(char c) throws IOException {
+            escape[2] = HEX_DIGITS[(c >>> 12) & 0xF];
+            escape[3] = HEX_DIGITS[(c >>> 8) & 0xF];
+            escape[4] = HEX_DIGITS[(c >>> 4) & 0xF];
+            escape[5] = HEX_DIGITS[c & 0xF];
+            out.write(escape, 0, escape.length);
+        }
+
+        /**
+         * Writes the character with underlying {@link Writer}.
+         * @param c the character to write
+         * @throws IOException when underlying writer can not write the character.
+         */
+        @Override
+        public void write(int c) throws IOException {
+            if ((char) c >= 128) {
+                writeEscape((char) c);
+            } else {
+                out.write(c);
+            }
+        }
+
+        /**
+         * Writes the part of the array with underlying {@link Writer}.
+         * @param chars the characters to write
+         * @param offset the index of the first character to write
+         * @param length the number of the characters to write
+         * @throws IOException when underlying writer can not write the characters.
+         */
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, chars.length);
+            int end = offset + length;
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                if (chars[i] >= 128) {
+                    if (i > start) {
+                        out.write(chars, start, i - start);
+                    }
+                    writeEscape(chars[i]);
+                    start = i + 1;
                 }
             }
-            return b.toString();
+            if (end > start) {
+                out.write(chars, start, end - start);
+            }
         }
 
         /**
-         * Writes the {@link String} with underlying {@link BufferedWriter}.
-         * @param str The string to write.
+         * Writes the part of the {@link String} with underlying {@link Writer}.
+         * {@link #write(String)} and {@link #append(CharSequence)} come here as well.
+         * @param str the string to write
+         * @param offset the index of the first character to write
+         * @param length the number of the characters to write
          * @throws IOException when underlying writer can not write the string.
          */
         @Override
-        public void write(String str) throws IOException {
-            super.write(escape(str));
+        public void write(String str, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, str.length());
+            int end = offset + length;
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                char c = str.charAt(i);
+                if (c >= 128) {
+                    if (i > start) {
+                        out.write(str, start, i - start);
+                    }
+                    writeEscape(c);
+                    start = i + 1;
+                }
+            }
+            if (end > start) {
+                out.write(str, start, end - start);
+            }
         }
 
         /**
-         * Flushes the underlying {@link BufferedWriter}
+         * Flushes the underlying {@link Writer}
          * @throws IOException when underlying writer can not flush.
          */
         @Override
         public void flush() throws IOException {
-            super.flush();
+            out.flush();
         }
 
         /**
-         * Closes the underlying {@link BufferedWriter}
+         * Closes the underlying {@link Writer}
          * @throws IOException when underlying writer can not close.
          */
         @Override
         public void close() throws IOException {
-            super.close();
+            out.close();
+        }
+    }
+
+    /**
+     * The class loader that defines a single stub class when it can not be defined next to its type token.
+     * @author zhelenskiy
+     * @version 1.0
+     */
+    private static class StubClassLoader extends ClassLoader {
+        /**
+         * Constructs the loader delegating to the loader of the type token.
+         * @param parent the loader of the type token
+         */
+        StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        /**
+         * Defines the class with the given name and content.
+         * @param name the binary name of the class
+         * @param bytes the content of the {@code .class}-file
+         * @return the defined class
+         */
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
         }
     }
+
     /**
      * Produces {@code .jar} file implementing class or interface specified by provided {@link Class}.
      * Generated class classes name should be same as classes name of the type token with {@code Impl} suffix added.
@@ -118,18 +496,271 @@ public class Implementor implements Impler, JarImpler {
     @Override
     public void implementJar(Class<?> token, Path jarFile) throws ImplerException {
         checkLackOfNulls(token, jarFile);
+        implementJar(List.of(token), jarFile);
+    }
+
+    /**
+     * Produces single {@code .jar} file implementing all classes and interfaces specified by provided tokens.
+     * All the sources are compiled by one compilation task, so the compiler is started only once.
+     * Where the sources and the classes are kept during the compilation depends on the {@link CompilationMode}.
+     * The {@code .jar}-file is written to a temporary file first and then atomically replaces the target.
+     * The existing file with the same content is not replaced, so its modification time is kept.
+     * @param tokens  type tokens to create implementations for.
+     * @param jarFile target {@code .jar} file.
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     * @see #withCompilationMode(CompilationMode)
+     */
+    public void implementJar(Collection<Class<?>> tokens, Path jarFile) throws ImplerException {
+        writeJar(tokens, jarFile);
+    }
+
+    /**
+     * Produces single {@code .jar} file as {@link #implementJar(Collection, Path)} does and gives its content hash.
+     * With {@link #withReproducible(boolean)} the same stubs give the same hash, so it can be used as the key of
+     * the artifact cache.
+     * @param tokens  type tokens to create implementations for.
+     * @param jarFile target {@code .jar} file.
+     * @return the lowercase hexadecimal {@code SHA-256} hash of the {@code .jar}-file
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    public String implementJarWithHash(Collection<Class<?>> tokens, Path jarFile) throws ImplerException {
+        return toHex(writeJar(tokens, jarFile));
+    }
+
+    /**
+     * Produces single {@code .jar} file and computes its hash while it is written.
+     * @param tokens  type tokens to create implementations for
+     * @param jarFile target {@code .jar} file
+     * @return the {@code SHA-256} hash of the {@code .jar}-file
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private byte[] writeJar(Collection<Class<?>> tokens, Path jarFile) throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(jarFile == null, "Jar file must be not null!");
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        compileClasses(getUniqueTokens(tokens), jarFile.toAbsolutePath().getParent(), Sinks.memoryClasses(classes));
+        Path temp = null;
+        try {
+            temp = AtomicFiles.createTempSibling(jarFile);
+            MessageDigest digest = newDigest();
+            generateArtifact(new DigestOutputStream(Files.newOutputStream(temp), digest), classes, true,
+                    jarIndex ? jarFile.getFileName().toString() : null);
+            byte[] hash = digest.digest();
+            if (!hasContent(jarFile, Files.size(temp), hash)) {
+                AtomicFiles.publish(temp, jarFile);
+                temp = null;
+            }
+            return hash;
+        } catch (IOException | SecurityException e) {
+            throw new ImplerException("Can not create jar-file: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * Checks if the file exists and has the content with the given size and hash.
+     * @param file the file to check
+     * @param size the size of the content
+     * @param hash the {@code SHA-256} hash of the content
+     * @return if the file has the content
+     * @throws IOException when the file can not be read.
+     */
+    private static boolean hasContent(Path file, long size, byte[] hash) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != size) {
+            return false;
+        }
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return MessageDigest.isEqual(digest.digest(), hash);
+    }
+
+    /**
+     * Creates the {@code SHA-256} digest, which every java platform supports.
+     * @return the new digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Converts the bytes to the lowercase hexadecimal string.
+     * @param bytes the bytes to convert
+     * @return the hexadecimal string
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Adds the implementations of the given classes and interfaces to the existing {@code .jar}-file.
+     * The implementations that are already in the {@code .jar}-file are replaced. The other entries are copied
+     * without being inflated or recompressed, so the update is not slowed down by compression of the kept entries.
+     * The updated copy is written next to the file and replaces it atomically, so the readers never see
+     * the partially updated file and the space of the replaced entries is reclaimed.
+     * The price of this is that the whole file is read and written again, so the update costs the I/O
+     * of the whole {@code .jar}-file rather than of the change, and needs the free space for the second copy.
+     * If the file does not exist, it is created as by {@link #implementJar(Collection, Path)}.
+     * @param tokens  type tokens to create implementations for.
+     * @param jarFile the {@code .jar}-file to update.
+     * @throws ImplerException when implementation of any of the tokens can not be generated
+     * or the file is not a valid {@code .jar}-file.
+     */
+    public void appendJar(Collection<Class<?>> tokens, Path jarFile) throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(jarFile == null, "Jar file must be not null!");
+        if (!Files.exists(jarFile)) {
+            implementJar(tokens, jarFile);
+            return;
+        }
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        compileClasses(getUniqueTokens(tokens), jarFile.toAbsolutePath().getParent(),
+                (className, content) -> classes.put(ZipSink.entryName(className, ".class"), content));
+        List<JarWriter.Entry> entries = JarWriter.Entry.compress(classes, deflateLevel, storedThreshold, parallelDeflate);
+        Set<String> replaced = new HashSet<>(classes.keySet());
+        replaced.add(JarIndex.NAME);
+        Path temp = null;
         try {
-            Path tempDir = Files.createTempDirectory(jarFile.toAbsolutePath().getParent(), "tmp");
+            temp = AtomicFiles.createTempSibling(jarFile);
+            try (JarWriter out = JarWriter.append(jarFile, Files.newOutputStream(temp), replaced,
+                    reproducible ? JarWriter.FIXED_TIME : System.currentTimeMillis())) {
+                for (JarWriter.Entry entry : entries) {
+                    out.write(entry);
+                }
+                if (jarIndex || out.hadEntry(JarIndex.NAME)) {
+                    byte[] index = JarIndex.create(jarFile.getFileName().toString(), out.names());
+                    out.write(JarWriter.Entry.of(JarIndex.NAME, index, deflateLevel, storedThreshold));
+                }
+            }
+            AtomicFiles.publish(temp, jarFile);
+            temp = null;
+        } catch (IOException | SecurityException e) {
+            throw new ImplerException("Can not update jar-file: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * Produces {@code .jar}-file implementing all classes and interfaces specified by provided tokens
+     * and writes it to the stream. No files are created: in {@link CompilationMode#DISK} mode the classes are compiled
+     * as in {@link CompilationMode#MEMORY} mode. The stream is not closed, so it can be a part of a bigger output.
+     * @param tokens  type tokens to create implementations for.
+     * @param out the stream to write the {@code .jar}-file to.
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    public void implementJar(Collection<Class<?>> tokens, OutputStream out) throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(out == null, "Output stream must be not null!");
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        compileWithoutFiles(getUniqueTokens(tokens), Sinks.memoryClasses(classes));
+        try {
+            generateArtifact(out, classes, false, null);
+        } catch (IOException e) {
+            throw new ImplerException("Can not write jar-file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Produces {@code .jar}-file implementing all classes and interfaces specified by provided tokens
+     * and writes it to the channel. The channel is not closed.
+     * @param tokens  type tokens to create implementations for.
+     * @param channel the channel to write the {@code .jar}-file to.
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     * @see #implementJar(Collection, OutputStream)
+     */
+    public void implementJar(Collection<Class<?>> tokens, WritableByteChannel channel) throws ImplerException {
+        nonAssert(channel == null, "Channel must be not null!");
+        implementJar(tokens, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Implements and compiles all classes and interfaces specified by provided tokens and gives the compiled classes
+     * to the sink. The sink is not closed. In {@link CompilationMode#DISK} mode the temporary directory is created
+     * in the default temporary-file directory.
+     * @param tokens  type tokens to create implementations for.
+     * @param sink the sink to give the compiled classes to.
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    public void implementClasses(Collection<Class<?>> tokens, ClassSink sink) throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(sink == null, "Sink must be not null!");
+        compileClasses(getUniqueTokens(tokens), null, sink);
+    }
+
+    /**
+     * Implements and compiles the tokens as it is set by the {@link CompilationMode}.
+     * @param tokens type tokens to create implementations for
+     * @param tempParent the directory to create the temporary directory in
+     *                   or {@code null} to create it in the default temporary-file directory
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void compileClasses(Collection<Class<?>> tokens, Path tempParent, ClassSink sink) throws ImplerException {
+        if (compilationMode == CompilationMode.DISK) {
+            compileOnDisk(tokens, tempParent, sink);
+        } else {
+            compileWithoutFiles(tokens, sink);
+        }
+    }
+
+    /**
+     * Implements and compiles the tokens without temporary files.
+     * @param tokens type tokens to create implementations for
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void compileWithoutFiles(Collection<Class<?>> tokens, ClassSink sink) throws ImplerException {
+        if (compilationMode == CompilationMode.BYTECODE) {
+            generateBytecode(tokens, sink);
+        } else {
+            compileInMemory(tokens, sink);
+        }
+    }
+
+    /**
+     * Implements and compiles the tokens in the temporary directory.
+     * The directory is in {@link MemoryFileSystem} unless the scratch space on the disk is chosen.
+     * The tokens are checked before the directory is created, so the tokens that can not be implemented
+     * are rejected without any file operations.
+     * @param tokens type tokens to create implementations for
+     * @param tempParent the directory to create the temporary directory on the disk in
+     *                   or {@code null} to create it in the default temporary-file directory
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     * @see #withMemoryScratch(boolean)
+     */
+    private void compileOnDisk(Collection<Class<?>> tokens, Path tempParent, ClassSink sink) throws ImplerException {
+        for (Class<?> token : tokens) {
+            nonAssert(token == null, "Token must be not null!");
+            checkImplementable(token);
+        }
+        if (memoryScratch) {
+            try (MemoryFileSystem scratch = MemoryFileSystemProvider.newFileSystem()) {
+                compileInDirectory(tokens, scratch.getPath("/"), sink);
+            }
+            return;
+        }
+        try {
+            Path tempDir = tempParent == null
+                    ? Files.createTempDirectory("tmp")
+                    : Files.createTempDirectory(tempParent, "tmp");
             try {
-//                System.out.println("lol1");
-                implement(token, tempDir);
-//                System.out.println("lol2");
-                var classFile = compile(token, tempDir);
-//                System.out.println("lol3");
-                generateArtifact(token, jarFile, classFile);
-//                System.out.println("lol4");
-            } catch (IOException | SecurityException e) {
-                throw new ImplerException("Can not create jar-file: " + e.getMessage());
+                compileInDirectory(tokens, tempDir, sink);
             } finally {
                 cleanTempDirectory(tempDir);
             }
@@ -139,23 +770,271 @@ public class Implementor implements Impler, JarImpler {
     }
 
     /**
-     * Creates an artifact for created {@code .class}-file.
-     * @param token type token for which {@code .jar}-file is generated
-     * @param jarFile target for the {@code .jar}-file
-     * @param classFile path to the compiled implementation class
+     * Implements the tokens, compiles them in the directory and gives the compiled classes to the sink.
+     * @param tokens type tokens to create implementations for
+     * @param tempDir the directory to save the sources and the classes to
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void compileInDirectory(Collection<Class<?>> tokens, Path tempDir, ClassSink sink) throws ImplerException {
+        List<Path> sources = new ArrayList<>();
+        for (ImplementationResult result : implementAll(tokens, tempDir)) {
+            if (!result.isSuccessful()) {
+                throw new ImplerException("Can not implement " + result.getToken() + ": "
+                        + result.getError().getMessage(), result.getError());
+            }
+            sources.add(result.getFile());
+        }
+        List<List<Class<?>>> shards = shardTokens(tokens);
+        if (shards.size() == 1) {
+            compile(tokens, sources, tempDir);
+        } else {
+            CompileScheduler.compile(shards, shard -> compile(shard, shard.stream()
+                    .map(token -> getPathToSource(token, tempDir))
+                    .collect(Collectors.toList()), tempDir));
+        }
+        try {
+            for (Class<?> token : tokens) {
+                sink.putClass(getBinaryImplName(token), Files.readAllBytes(getPathToPackage(token, tempDir)
+                        .resolve(token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX + ".class")));
+            }
+        } catch (IOException | SecurityException e) {
+            throw new ImplerException("Can not read compiled classes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Implements and compiles the tokens without creating any files.
+     * The sources are given to the compiler as {@link MemoryJavaFileManager.LazySourceFile}s rendered only when
+     * the compiler reads them, and the compiled classes are given to the sink by {@link MemoryJavaFileManager}.
+     * Big batches are compiled in parallel shards, then the classes are given to the sink in the order of the tokens.
+     * @param tokens type tokens to create implementations for
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void compileInMemory(Collection<Class<?>> tokens, ClassSink sink) throws ImplerException {
+        List<List<Class<?>>> shards = shardTokens(tokens);
+        if (shards.size() == 1) {
+            compileShardInMemory(tokens, sink);
+            return;
+        }
+        Map<String, byte[]> classes = new HashMap<>();
+        CompileScheduler.compile(shards, shard -> compileShardInMemory(shard, Sinks.memoryClasses(classes)));
+        try {
+            for (Class<?> token : tokens) {
+                byte[] content = classes.remove(getBinaryImplName(token));
+                if (content != null) {
+                    sink.putClass(getBinaryImplName(token), content);
+                }
+            }
+            for (Map.Entry<String, byte[]> entry : new TreeMap<>(classes).entrySet()) {
+                sink.putClass(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new ImplerException("Can not write class: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Implements and compiles the tokens by one compilation task without creating any files.
+     * @param tokens type tokens to create implementations for
+     * @param sink the sink to give the compiled classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void compileShardInMemory(Collection<Class<?>> tokens, ClassSink sink) throws ImplerException {
+        List<JavaFileObject> sources = new ArrayList<>(tokens.size());
+        for (Class<?> token : tokens) {
+            nonAssert(token == null, "Token must be not null!");
+            checkImplementable(token);
+            sources.add(new MemoryJavaFileManager.LazySourceFile(getBinaryImplName(token), estimateSourceSize(token),
+                    writer -> renderSource(token, writer)));
+        }
+        List<Path> classPath = getSignatureClassPath(tokens, null);
+        List<Path> fallbackClassPath = getFallbackClassPath(tokens, null, classPath);
+        if (compilerWorkers != null) {
+            compilerWorkers.compile(sources, classPath, fallbackClassPath, sink);
+        } else {
+            CompilerService.getInstance().compile(sources, classPath, fallbackClassPath, sink);
+        }
+    }
+
+    /**
+     * Splits the tokens into the shards compiled by separate compilation tasks.
+     * @param tokens the tokens to split
+     * @return the single shard if the parallel compilation is disabled or the batch is small, the shards otherwise
+     * @see #withParallelCompilation(boolean)
+     */
+    private List<List<Class<?>>> shardTokens(Collection<Class<?>> tokens) {
+        int shards = parallelCompilation ? CompileScheduler.shardCount(tokens.size()) : 1;
+        return CompileScheduler.split(tokens, Class::getPackageName, this::estimateSourceSize, shards);
+    }
+
+    /**
+     * Generates the {@code .class}-files of the implementations of the tokens with {@link ClassFileWriter}.
+     * @param tokens type tokens to create implementations for
+     * @param sink the sink to give the generated classes to
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    private void generateBytecode(Collection<Class<?>> tokens, ClassSink sink) throws ImplerException {
+        for (Class<?> token : tokens) {
+            nonAssert(token == null, "Token must be not null!");
+            checkImplementable(token);
+            Constructor<?> constructor = getConstructor(token);
+            nonAssert(constructor == null && !token.isInterface(), "Classes must have at least one constructor!");
+            byte[] bytes = ClassFileWriter.generate(getBinaryImplName(token), token, constructor, getAbstractMethods(token));
+            try {
+                sink.putClass(getBinaryImplName(token), bytes);
+            } catch (IOException e) {
+                throw new ImplerException("Can not write class: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gives the shared instance of the implementation of the class or interface specified by provided token.
+     * The implementation is generated by {@link ClassFileWriter} and defined in the current process.
+     * The class and the instance are created once per token, later calls only look them up.
+     * The super constructor of the class is called with default values of its parameters.
+     * @param token type token to create implementation for.
+     * @param <T> the implemented type
+     * @return the shared instance of the implementation
+     * @throws ImplerException when implementation can not be generated or instantiated.
+     */
+    public <T> T newStub(Class<T> token) throws ImplerException {
+        nonAssert(token == null, "Token must be not null!");
+        AtomicReference<Object> cached = STUBS.get(token);
+        Object stub = cached.get();
+        if (stub == null) {
+            Class<? extends T> stubClass = getStubClass(token);
+            Constructor<?> constructor = stubClass.getConstructors()[0];
+            Object[] arguments = Arrays.stream(constructor.getParameterTypes())
+                    .map(type -> type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null)
+                    .toArray();
+            try {
+                stub = constructor.newInstance(arguments);
+            } catch (InvocationTargetException e) {
+                throw new ImplerException("Super constructor of " + stubClass.getName() + " failed: "
+                        + e.getTargetException(), e.getTargetException());
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new ImplerException("Can not instantiate " + stubClass.getName() + ": " + e.getMessage(), e);
+            }
+            if (!cached.compareAndSet(null, stub)) {
+                stub = cached.get();
+            }
+        }
+        return token.cast(stub);
+    }
+
+    /**
+     * Gives the implementation class of the class or interface specified by provided token.
+     * The class is defined in the package of the token if the package is open to this module,
+     * otherwise it is defined by a private class loader.
+     * The class is created once per token, later calls only look it up.
+     * @param token type token to create implementation for.
+     * @param <T> the implemented type
+     * @return the implementation class
+     * @throws ImplerException when implementation can not be generated or defined.
+     */
+    public <T> Class<? extends T> getStubClass(Class<T> token) throws ImplerException {
+        nonAssert(token == null, "Token must be not null!");
+        AtomicReference<Class<?>> cached = STUB_CLASSES.get(token);
+        Class<?> stubClass = cached.get();
+        if (stubClass == null) {
+            checkImplementable(token);
+            Constructor<?> constructor = getConstructor(token);
+            nonAssert(constructor == null && !token.isInterface(), "Classes must have at least one constructor!");
+            List<Method> methods = getAbstractMethods(token);
+            stubClass = defineStubClass(token, constructor, methods);
+            if (!cached.compareAndSet(null, stubClass)) {
+                stubClass = cached.get();
+            }
+        }
+        return stubClass.asSubclass(token);
+    }
+
+    /**
+     * Generates and defines the implementation class.
+     * @param token type token to create implementation for
+     * @param constructor the super constructor to call or {@code null} if the token is an interface
+     * @param methods the methods to implement
+     * @return the defined class
+     * @throws ImplerException when the class can not be defined.
+     */
+    private static Class<?> defineStubClass(Class<?> token, Constructor<?> constructor, List<Method> methods)
+            throws ImplerException {
+        String className = getBinaryImplName(token);
+        try {
+            Implementor.class.getModule().addReads(token.getModule());
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(token, MethodHandles.lookup());
+            return lookup.defineClass(ClassFileWriter.generate(className, token, constructor, methods));
+        } catch (IllegalAccessException | SecurityException | LinkageError e) {
+            // the package of the token is not open to this module, so the class is defined by a private loader
+        }
+        if (className.startsWith("java.")) {
+            className = Implementor.class.getPackageName() + ".stubs." + className;
+        }
+        try {
+            return new StubClassLoader(token.getClassLoader())
+                    .define(className, ClassFileWriter.generate(className, token, constructor, methods));
+        } catch (SecurityException | LinkageError e) {
+            throw new ImplerException("Can not define implementation of " + token.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an artifact for created {@code .class}-files.
+     * The entries are compressed in parallel if it is enabled and written as soon as they are ready.
+     * @param out the stream to write the {@code .jar}-file to
+     * @param classes map from binary names of the compiled classes to their content
+     * @param close if the stream should be closed
+     * @param jarName the name of the {@code .jar}-file for its index or {@code null} if the index is not needed
      * @throws IOException when can not write to the {@code .jar}-file.
+     * @see #withDeflateLevel(int)
+     * @see #withStoredThreshold(int)
+     * @see #withParallelDeflate(boolean)
+     * @see #withReproducible(boolean)
      */
-    private void generateArtifact(/*@NotNull */Class<?> token, Path jarFile, Path classFile) throws IOException {
+    private void generateArtifact(OutputStream out, /*@NotNull */Map<String, byte[]> classes, boolean close,
+                                  String jarName) throws IOException {
         Manifest manifest = new Manifest();
         manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jarFile), manifest)) {
-            var className = Paths.get("").resolve(token.getPackageName()
-                    .replace('.', File.separatorChar))
-                    .resolve(token.getSimpleName() + "Impl.class").toString();
-            out.putNextEntry(new ZipEntry(className));
-            Files.copy(classFile, out);
-            out.closeEntry();
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        manifest.write(manifestBytes);
+        List<String> entryNames = classes.keySet().stream()
+                .map(className -> ZipSink.entryName(className, ".class"))
+                .collect(Collectors.toList());
+        List<String> names = null;
+        if (reproducible) {
+            names = new ArrayList<>(entryNames);
+            names.add(JarFile.MANIFEST_NAME);
+            if (jarName != null) {
+                names.add(JarIndex.NAME);
+            }
         }
+        ZipSink sink = new ZipSink(out, deflateLevel, storedThreshold, parallelDeflate, names, close);
+        try {
+            sink.putEntry(JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+            if (jarName != null) {
+                sink.putEntry(JarIndex.NAME, JarIndex.create(jarName, entryNames));
+            }
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                sink.putClass(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException | RuntimeException e) {
+            sink.abort();
+            throw e;
+        }
+        sink.close();
+    }
+
+    /**
+     * Generates the binary name of the implementation of the token.
+     * @param token the implemented type token
+     * @return the binary name of the implementation class
+     */
+    private static String getBinaryImplName(/*@NotNull */Class<?> token) {
+        String packagePrefix = token.getPackageName().isEmpty() ? "" : token.getPackageName() + ".";
+        return packagePrefix + token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX;
     }
 
     /**
@@ -209,45 +1088,118 @@ public class Implementor implements Impler, JarImpler {
     }
 
     /**
-     * Compiles type token with given token and source code path.
-     * @param token the token to compile
+     * Compiles the given sources of the implementations of the tokens with one compilation task
+     * of the shared {@link CompilerService} or of a worker of the {@link CompilerWorkerPool}.
+     * The compiled classes are saved next to the sources.
+     * @param tokens the implemented tokens
+     * @param sources the source files to compile
      * @param tempDir the source code path
-     * @return path to generated {@code .class}-file.
      * @throws ImplerException when<ul>
      *     <li>Can not generate class-path;</li>
      *     <li>No java compiler found in the system;</li>
-     *     <li>Return code of the compilation is not 0.</li>
+     *     <li>Can not read the sources sent to the worker;</li>
+     *     <li>The compilation failed.</li>
      * </ul>
      */
-//    @NotNull
-    private Path compile(Class<?> token, Path tempDir) throws ImplerException {
-        Path superPath;
-        try {
-            CodeSource superCodeSource = token.getProtectionDomain().getCodeSource();
-            superPath = Path.of((superCodeSource == null) ? "" : superCodeSource.getLocation().getPath());
-        } catch (InvalidPathException e) {
-            throw new ImplerException("Failed to generate valid classpath", e);
+    private void compile(Collection<Class<?>> tokens, List<Path> sources, Path tempDir) throws ImplerException {
+        List<Path> classPath = getSignatureClassPath(tokens, tempDir);
+        List<Path> fallbackClassPath = getFallbackClassPath(tokens, tempDir, classPath);
+        if (compilerWorkers == null) {
+            CompilerService.getInstance().compile(sources, classPath, fallbackClassPath, tempDir);
+            return;
         }
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if (compiler == null) {
-            throw new ImplerException("No java compiler found in the system.");
+        List<JavaFileObject> files = new ArrayList<>();
+        for (Class<?> token : tokens) {
+            try {
+                files.add(new MemoryJavaFileManager.SourceFile(getBinaryImplName(token),
+                        Files.readString(getPathToSource(token, tempDir), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new ImplerException("Can not read source: " + e.getMessage());
+            }
         }
-        var className = token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX;
-        final Path pathToPackage = getPathToPackage(token, tempDir);
-        String[] args = {
-                "-classpath",
-                String.join(File.pathSeparator, superPath.toString(), tempDir.toString(), System.getProperty("java.class.path")),
-                pathToPackage.resolve(className + ".java").toString()
-        };
-        int resCode = compiler.run(null, null, null, args);
-        if (resCode != 0) {
-            throw new ImplerException("Can not compile the class, compiler's return code is " + resCode + ".");
+        compilerWorkers.compile(files, classPath, fallbackClassPath, Sinks.directoryClasses(tempDir));
+    }
+
+    /**
+     * Generates the minimal class-path for compilation of the implementations of the tokens.
+     * It contains the locations of the types used in the signatures of the constructors and the implemented methods
+     * of the tokens and the source code path, so the compiler does not open the archives it does not need.
+     * @param tokens the implemented tokens
+     * @param tempDir the source code path or {@code null} if the sources are not saved to the disk,
+     *                it is added only if it is in the default file system
+     * @return the generated class-path
+     * @throws ImplerException when can not generate class-path
+     * @see SignatureClassPath
+     */
+    private List<Path> getSignatureClassPath(Collection<Class<?>> tokens, Path tempDir) throws ImplerException {
+        SignatureClassPath classPath = new SignatureClassPath();
+        for (Class<?> token : tokens) {
+            List<Constructor<?>> constructors = Arrays.stream(token.getDeclaredConstructors())
+                    .filter(checkModifier(Modifier::isPrivate).negate())
+                    .collect(Collectors.toList());
+            classPath.add(token, constructors, getAbstractMethods(token));
+        }
+        List<Path> result = new ArrayList<>(classPath.getLocations());
+        if (tempDir != null && tempDir.getFileSystem() == FileSystems.getDefault()) {
+            result.add(tempDir);
+        }
+        return result;
+    }
+
+    /**
+     * Generates the class-path to retry the compilation with if the minimal one is not enough.
+     * @param tokens the implemented tokens
+     * @param tempDir the source code path or {@code null} if the sources are not saved to the disk
+     * @param minimalClassPath the minimal class-path
+     * @return the full class-path or {@code null} if it has nothing more than the minimal one
+     * @throws ImplerException when can not generate class-path
+     * @see #getClassPath(Collection, Path)
+     */
+    private List<Path> getFallbackClassPath(Collection<Class<?>> tokens, Path tempDir, List<Path> minimalClassPath)
+            throws ImplerException {
+        List<Path> classPath = getClassPath(tokens, tempDir);
+        return minimalClassPath.containsAll(classPath) ? null : classPath;
+    }
+
+    /**
+     * Generates class-path for compilation of the implementations of the tokens.
+     * It contains the locations of the tokens, the source code path and the current class-path.
+     * The locations that are not files, such as {@code jrt:} locations of the platform classes, are skipped,
+     * as the compiler finds the platform classes without the class-path.
+     * @param tokens the implemented tokens
+     * @param tempDir the source code path or {@code null} if the sources are not saved to the disk,
+     *                it is added only if it is in the default file system
+     * @return the generated class-path
+     * @throws ImplerException when can not generate class-path
+     */
+    private List<Path> getClassPath(Collection<Class<?>> tokens, Path tempDir) throws ImplerException {
+        Set<Path> classPath = new LinkedHashSet<>();
+        try {
+            for (Class<?> token : tokens) {
+                CodeSource superCodeSource = token.getProtectionDomain().getCodeSource();
+                if (superCodeSource != null && superCodeSource.getLocation() != null) {
+                    URI location = superCodeSource.getLocation().toURI();
+                    if ("file".equalsIgnoreCase(location.getScheme())) {
+                        classPath.add(Path.of(location));
+                    }
+                }
+            }
+            if (tempDir != null && tempDir.getFileSystem() == FileSystems.getDefault()) {
+                classPath.add(tempDir);
+            }
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    classPath.add(Path.of(entry));
+                }
+            }
+        } catch (IllegalArgumentException | FileSystemNotFoundException | URISyntaxException e) {
+            throw new ImplerException("Failed to generate valid classpath", e);
         }
-        return pathToPackage.resolve(className + ".class");
+        return new ArrayList<>(classPath);
     }
 
     /**
-     * Cleans temporary directory with source code and compiled class generated by {@link #implementJar(Class, Path)}.
+     * Cleans temporary directory with source code and compiled classes generated by {@link #implementJar(Collection, Path)}.
      * The files are generated because creating of {@code .jar}-file is multi-step.
      * If an error occurs, a message to System.err is written.
      * @param tempDir the temporary directory
@@ -291,7 +1243,75 @@ public class Implementor implements Impler, JarImpler {
      * @return the generated path
      */
     private Path getPathToPackage(/*@NotNull */Class<?> token, Path root) {
-        return token.getPackage() == null ? root : root.resolve(token.getPackage().getName().replace(".", File.separator));
+        return token.getPackage() == null ? root : root.resolve(token.getPackage().getName().replace(".", root.getFileSystem().getSeparator()));
+    }
+
+    /**
+     * Opens the writer of the source code of the implementation of the token.
+     * @param token the type token to be implemented
+     * @param sink the sink to write the source code to
+     * @return the opened writer
+     * @throws IOException when the source can not be opened.
+     */
+    private Writer openSource(Class<?> token, SourceSink sink) throws IOException {
+        return sink.openSource(getBinaryImplName(token), estimateSourceSize(token));
+    }
+
+    /**
+     * Abandons the output after the failure. The outputs implementing {@link Abortable} are aborted,
+     * so the incomplete content is not published, the others are closed.
+     * @param output the output to abandon
+     * @param failure the failure, the errors of closing are added to it as suppressed
+     */
+    private static void abort(Closeable output, Throwable failure) {
+        if (output instanceof Abortable) {
+            ((Abortable) output).abort();
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Wraps the writer of the source code, so it escapes non-ASCII characters if it is required by the encoding
+     * of the sources.
+     * @param writer the writer of the source code
+     * @return the wrapping writer or the given one if no escaping is required
+     */
+    private Writer encodeSource(Writer writer) {
+        return sourceEncoding == SourceEncoding.ESCAPED ? new EscapeWriter(writer) : writer;
+    }
+
+    /**
+     * Renders the source code of the implementation of the token for the compiler.
+     * The token must be checked by {@link #checkImplementable(Class)} before.
+     * @param token the type token to be implemented
+     * @param out the writer to write the source code to, it is closed
+     * @throws IOException when the source can not be rendered.
+     * @see MemoryJavaFileManager.LazySourceFile
+     */
+    private void renderSource(Class<?> token, Writer out) throws IOException {
+        try (Writer writer = encodeSource(out)) {
+            generateClass(token, token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX, writer);
+        } catch (ImplerException e) {
+            throw new IOException("Can not implement " + token.getCanonicalName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Estimates the size of the implementation of the token in bytes, so its buffer is not grown while it is written.
+     * @param token the type token to be implemented
+     * @return the expected size of the source
+     */
+    private int estimateSourceSize(Class<?> token) {
+        int size = 512 + 8 * token.getName().length();
+        for (Method method : getAbstractMethods(token)) {
+            size += 96 + method.getName().length() + 64 * (method.getParameterCount() + method.getExceptionTypes().length);
+        }
+        return size;
     }
 
     /**
@@ -307,23 +1327,185 @@ public class Implementor implements Impler, JarImpler {
     @Override
     public void implement(Class<?> token, Path root) throws ImplerException {
         checkLackOfNulls(token, root);
-        checkSuperclass(token);
-        Path outputDirectory = getPathToPackage(token, root);
-        try {
-            Files.createDirectories(outputDirectory);
-        } catch (IOException | SecurityException e) {
-            // no handling because if the exception happens because of parallel operation there is now reason to handle,
-            // otherwise exception will be thrown later
-        }
+        implement(token, Sinks.directorySources(root, directBuffers));
+    }
+
+    /**
+     * Produces code implementing class or interface specified by provided {@code token} and writes it to the sink.
+     * The sink is not closed. The writer of the source code is closed when the source code is complete,
+     * if the generation fails, it is aborted when it supports it, so no incomplete file is published.
+     * @param token type token to create implementation for.
+     * @param sink the sink to write the source code to.
+     * @throws ImplerException when implementation can not be generated.
+     * @see Sinks
+     */
+    public void implement(Class<?> token, SourceSink sink) throws ImplerException {
+        nonAssert(token == null, "Token must be not null!");
+        nonAssert(sink == null, "Sink must be not null!");
+        checkImplementable(token);
         var className = token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX;
-        Path pathToFile = outputDirectory.resolve(className + ".java");
-        try (BufferedWriter writer = new EscapeWriter(Files.newBufferedWriter(pathToFile))) {
-            generateClass(token, className, writer);
+        try {
+            Writer source = openSource(token, sink);
+            Writer writer = encodeSource(source);
+            try {
+                generateClass(token, className, writer);
+            } catch (IOException | ImplerException | RuntimeException e) {
+                abort(source, e);
+                throw e;
+            }
+            writer.close();
         } catch (IOException e) {
             throw new ImplerException("Can not write to output file: " + e.getMessage() + "!");
         }
     }
 
+    /**
+     * Produces the implementations of all classes and interfaces specified by provided tokens and saves their sources
+     * to a single {@code .zip}-archive instead of separate files. The entries have the same package-relative names
+     * as the files saved by {@link #implement(Class, Path)}, so the archive can be passed to the java compiler
+     * with {@code -sourcepath}. The entries are compressed as the entries of {@code .jar}-files.
+     * The archive is published atomically, as the {@code .jar}-files are.
+     * @param tokens type tokens to create implementations for.
+     * @param archive target {@code .zip}-file.
+     * @throws ImplerException when implementation of any of the tokens can not be generated.
+     */
+    public void implementSources(Collection<Class<?>> tokens, Path archive) throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(archive == null, "Archive must be not null!");
+        Set<Class<?>> uniqueTokens = getUniqueTokens(tokens);
+        for (Class<?> token : uniqueTokens) {
+            nonAssert(token == null, "Token must be not null!");
+            checkImplementable(token);
+        }
+        Path temp = null;
+        try {
+            temp = AtomicFiles.createTempSibling(archive);
+            List<String> names = !reproducible ? null : uniqueTokens.stream()
+                    .map(token -> ZipSink.entryName(getBinaryImplName(token), ".java"))
+                    .collect(Collectors.toList());
+            ZipSink sink = new ZipSink(Files.newOutputStream(temp),
+                    deflateLevel, storedThreshold, parallelDeflate, names, true);
+            try {
+                for (Class<?> token : uniqueTokens) {
+                    implement(token, sink);
+                }
+            } catch (ImplerException | RuntimeException e) {
+                sink.abort();
+                throw e;
+            }
+            sink.close();
+            AtomicFiles.publish(temp, archive);
+            temp = null;
+        } catch (IOException | SecurityException e) {
+            throw new ImplerException("Can not create source archive: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * Implements all the given type tokens in parallel on the {@link ForkJoinPool#commonPool()}.
+     * @param tokens type tokens to create implementations for.
+     * @param root the common root directory.
+     * @return results of the implementations in the order of the given tokens.
+     * @throws ImplerException when some of given arguments are nulls.
+     * @see #implementAll(Collection, Path, ForkJoinPool)
+     */
+    public List<ImplementationResult> implementAll(Collection<Class<?>> tokens, Path root) throws ImplerException {
+        return implementAll(tokens, root, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Implements all the given type tokens in parallel on the given pool.
+     * Every token is implemented as {@link #implement(Class, Path)} does in a separate task,
+     * so reflection, rendering and writing of different tokens are done by different workers.
+     * Failure of one token does not stop implementation of the others.
+     * @param tokens type tokens to create implementations for.
+     * @param root the common root directory.
+     * @param pool the pool to run implementations on.
+     * @return results of the implementations in the order of the given tokens.
+     * @throws ImplerException when some of given arguments are nulls
+     * or the implementations of different tokens have the same name.
+     */
+    public List<ImplementationResult> implementAll(Collection<Class<?>> tokens, Path root, ForkJoinPool pool)
+            throws ImplerException {
+        nonAssert(tokens == null, "Tokens must be not null!");
+        nonAssert(root == null, "Root must be not null!");
+        nonAssert(pool == null, "Pool must be not null!");
+        checkDistinctNames(tokens);
+        List<ForkJoinTask<ImplementationResult>> tasks = tokens.stream()
+                .map(token -> pool.submit(() -> implementToResult(token, root)))
+                .collect(Collectors.toList());
+        return tasks.stream()
+                .map(ForkJoinTask::join)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes the repeated tokens and checks that the implementations of the rest have different names,
+     * so no implementation overwrites another one in the output.
+     * @param tokens type tokens to create implementations for
+     * @return the distinct tokens in the given order
+     * @throws ImplerException when the implementations of different tokens have the same name.
+     */
+    private static Set<Class<?>> getUniqueTokens(Collection<Class<?>> tokens) throws ImplerException {
+        Set<Class<?>> uniqueTokens = new LinkedHashSet<>(tokens);
+        checkDistinctNames(uniqueTokens);
+        return uniqueTokens;
+    }
+
+    /**
+     * Checks that the implementations of different tokens have different names.
+     * For example, the nested classes with the same simple name in the same package have the same implementation.
+     * The {@code null} tokens are skipped, they are rejected when they are implemented.
+     * @param tokens type tokens to create implementations for
+     * @throws ImplerException when the implementations of different tokens have the same name.
+     */
+    private static void checkDistinctNames(Collection<Class<?>> tokens) throws ImplerException {
+        Map<String, Class<?>> tokensByName = new HashMap<>();
+        for (Class<?> token : tokens) {
+            if (token == null) {
+                continue;
+            }
+            String name = getBinaryImplName(token);
+            Class<?> other = tokensByName.putIfAbsent(name, token);
+            if (other != null && other != token) {
+                throw new ImplerException("Can not implement both " + other.getName() + " and " + token.getName()
+                        + " as " + name);
+            }
+        }
+    }
+
+    /**
+     * Implements the token and wraps the outcome into {@link ImplementationResult}.
+     * @param token type token to create implementation for.
+     * @param root root directory.
+     * @return the result of the implementation.
+     */
+    private ImplementationResult implementToResult(Class<?> token, Path root) {
+        try {
+            implement(token, root);
+            return new ImplementationResult(token, getPathToSource(token, root), null);
+        } catch (ImplerException e) {
+            return new ImplementationResult(token, null, e);
+        } catch (RuntimeException e) {
+            return new ImplementationResult(token, null,
+                    new ImplerException("Unexpected error: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Generates path to the source file of the implementation by type token and root directory.
+     * @param token the type token to find the source file for
+     * @param root the root directory
+     * @return the generated path
+     */
+    private Path getPathToSource(/*@NotNull */Class<?> token, Path root) {
+        return getPathToPackage(token, root).resolve(token.getSimpleName() + Constants.IMPLEMENTATION_POSTFIX + ".java");
+    }
+
     /**
      * Checking that given token and path are not nulls.
      * @param token the token to check
@@ -336,106 +1518,89 @@ public class Implementor implements Impler, JarImpler {
     }
 
     /**
-     * Generates the class implementation and writes it with given BufferedWriter.
+     * Generates the class implementation and writes it with given {@link Writer} piece by piece,
+     * so the whole source code is never kept in memory.
      * @param token a type token to implement
      * @param className the name of the implementation class
-     * @param writer buffered writer to save result
+     * @param writer writer to save result
      * @throws IOException when can not write to the target file
      * @throws ImplerException when can not implement the class or the interface
      */
     private void generateClass(/*@NotNull*/ Class<?> token,
                                             String className,
-            /*@NotNull*/ BufferedWriter writer) throws IOException, ImplerException {
+            /*@NotNull*/ Writer writer) throws IOException, ImplerException {
         var constructor = getConstructor(token);
-        writer.write(!token.getPackageName().isEmpty() ? "package " + token.getPackage().getName() + ";" + Constants.NEW_LINE : "");
-        writer.write("@SuppressWarnings({\"unchecked\", \"deprecation\"})" + Constants.NEW_LINE);
-        writer.write("public class " + className + " ");
-        writer.write(token.isInterface() ? "implements " : "extends ");
-        writer.write(token.getCanonicalName() + " {" + Constants.NEW_LINE);
+        if (!token.getPackageName().isEmpty()) {
+            writer.write("package ");
+            writer.write(token.getPackageName());
+            writer.write(";");
+            writer.write(Constants.NEW_LINE);
+        }
+        writer.write("@SuppressWarnings({\"unchecked\", \"deprecation\"})");
+        writer.write(Constants.NEW_LINE);
+        writer.write("public class ");
+        writer.write(className);
+        writer.write(token.isInterface() ? " implements " : " extends ");
+        writer.write(token.getCanonicalName());
+        writer.write(" {");
+        writer.write(Constants.NEW_LINE);
         if (constructor != null) {
-            writer.write(getConstructorString(constructor, className));
+            writeConstructor(constructor, className, writer);
         } else {
             nonAssert(!token.isInterface(), "Classes must have at least one constructor!");
         }
-        writer.write(getAllMethodsImplementations(token));
+        writeAllMethodsImplementations(token, writer);
         writer.write("}");
     }
 
     /**
-     * Generates formatted executable unit (method or constructor) with given header and expression
-     * @param header the header of the executable
-     * @param expression the expression of the executable
-     * @return the generated unit source code
-     */
-//    @NotNull
-//    @Contract(pure = true)
-    private static String generateExecutable(String header, String expression) {
-        return Constants.INDENT
-                + header +
-                Constants.BEGINNING_OF_EXECUTABLE
-                + expression +
-                Constants.ENDING_OF_EXECUTABLE;
-    }
-
-    /**
-     * Generates constructor
+     * Writes formatted constructor that passes all its arguments to the super constructor.
      * @param constructor the constructor to implement
      * @param className the name of the current class
-     * @return the source code for the constructor implementation
-     */
-//    @NotNull
-    private String getConstructorString(Constructor<?> constructor, String className) {
-        String header = "public " + className + getDeclarationSinceArguments(constructor);
-        String superArguments = getArgumentString(constructor.getParameterCount(), i -> "arg" + i);
-        String body = "super(" + superArguments + ");";
-        return generateExecutable(header, body);
-    }
-
-    /**
-     * Generates arguments by index and name generator
-     * @param parameterCount the number of parameters
-     * @param f the name generator
-     * @return the generated string of parameters
+     * @param writer writer to save result
+     * @throws IOException when can not write to the target file
      */
-    private String getArgumentString(int parameterCount, IntFunction<String> f) {
-        return IntStream
-                .range(0, parameterCount)
-                .mapToObj(f)
-                .collect(Collectors.joining(", "));
+    private void writeConstructor(Constructor<?> constructor, String className, Writer writer) throws IOException {
+        writer.write(Constants.INDENT);
+        writer.write("public ");
+        writer.write(className);
+        writeDeclarationSinceArguments(constructor, writer);
+        writer.write(Constants.BEGINNING_OF_EXECUTABLE);
+        writer.write("super(");
+        for (int i = 0; i < constructor.getParameterCount(); i++) {
+            if (i != 0) {
+                writer.write(", ");
+            }
+            writer.write("arg");
+            writer.write(Integer.toString(i));
+        }
+        writer.write(");");
+        writer.write(Constants.ENDING_OF_EXECUTABLE);
     }
 
     /**
-     * Generates declaration for executables (such as constructors or methods) since arguments list
+     * Writes declaration for executables (such as constructors or methods) since arguments list
      * @param callable the executable to generate the declaration part
-     * @return the generated declaration part
-     */
-//    @NotNull
-    private String getDeclarationSinceArguments(/*@NotNull*/ Executable callable) {
-        return "(" + getParametersString(callable.getParameters()) + ")" +
-                getExceptionsString(callable.getExceptionTypes());
-    }
-
-    /**
-     * Generates source code for list of parameters
-     * @param parameters the parameters to be included in in source code
-     * @return the source code for the parameters list
-     */
-    private String getParametersString(/*@NotNull*/ Parameter[] parameters) {
-        return getArgumentString(parameters.length, i -> parameters[i].getType().getCanonicalName() + " arg" + i);
-    }
-
-    /**
-     * Generates source code for list of exceptions
-     * @param exceptions the exceptions to be included in in source code
-     * @return the source code for the exceptions list
+     * @param writer writer to save result
+     * @throws IOException when can not write to the target file
      */
-//    @NotNull
-    private String getExceptionsString(/*@NotNull*/ Class<?>[] exceptions) {
-        return exceptions.length == 0
-                ? ""
-                : " throws " + Arrays.stream(exceptions)
-                .map(Class::getCanonicalName)
-                .collect(Collectors.joining(", "));
+    private void writeDeclarationSinceArguments(/*@NotNull*/ Executable callable, Writer writer) throws IOException {
+        writer.write("(");
+        Class<?>[] parameters = callable.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i != 0) {
+                writer.write(", ");
+            }
+            writer.write(parameters[i].getCanonicalName());
+            writer.write(" arg");
+            writer.write(Integer.toString(i));
+        }
+        writer.write(")");
+        Class<?>[] exceptions = callable.getExceptionTypes();
+        for (int i = 0; i < exceptions.length; i++) {
+            writer.write(i == 0 ? " throws " : ", ");
+            writer.write(exceptions[i].getCanonicalName());
+        }
     }
 
 
@@ -467,6 +1632,33 @@ public class Implementor implements Impler, JarImpler {
     }
 
 
+    /**
+     * Checks before any file is written that the implementation of the token can be compiled:
+     * the token can be extended and the implementation can refer to all the types of the signatures
+     * of the called super constructor and the implemented methods.
+     * @param token the token to check
+     * @throws ImplerException when the token can not be implemented, the message names the inaccessible type.
+     * @see Accessibility
+     */
+    private void checkImplementable(/*@NotNull*/ Class<?> token) throws ImplerException {
+        checkSuperclass(token);
+        checkAccessibility(token, Accessibility.findProblem(token, token));
+        getConstructor(token);
+        for (Method method : getAbstractMethods(token)) {
+            checkAccessibility(token, Accessibility.findProblem(token, method));
+        }
+    }
+
+    /**
+     * Throws the exception if the accessibility problem is found.
+     * @param token the token being checked
+     * @param problem the description of the problem or {@code null} if there is no problem
+     * @throws ImplerException when there is the problem.
+     */
+    private void checkAccessibility(Class<?> token, String problem) throws ImplerException {
+        nonAssert(problem != null, "Can not implement " + token.getName() + ": " + problem + "!");
+    }
+
     /**
      * Finds constructor for the token.
      * @param token the token whose constructor to find.
@@ -479,7 +1671,13 @@ public class Implementor implements Impler, JarImpler {
             return null;
         }
         Optional<Constructor<?>> constructor = hasAccessibleConstructors(token);
-        nonAssert(constructor.isEmpty(), "Must be an interface or contain at least one not private constructor!");
+        if (constructor.isEmpty()) {
+            Optional<Constructor<?>> notPrivate = Arrays.stream(token.getDeclaredConstructors())
+                    .filter(checkModifier(Modifier::isPrivate).negate())
+                    .findFirst();
+            nonAssert(notPrivate.isEmpty(), "Must be an interface or contain at least one not private constructor!");
+            checkAccessibility(token, Accessibility.findProblem(token, notPrivate.get()));
+        }
         return constructor.get();
     }
 
@@ -495,87 +1693,77 @@ public class Implementor implements Impler, JarImpler {
     }
 
     /**
-     * Checks if the token has any accessible (=non-private) constructors.
+     * Checks if the token has any accessible constructors: they are not private and the implementation
+     * can refer to all the types of their signatures.
+     * In reproducible mode the constructor with the least signature is chosen.
      * @param token the token whose constructor to find
      * @return any constructor if such one found
      */
 //    @NotNull
     private Optional<Constructor<?>> hasAccessibleConstructors(/*@NotNull*/ Class<?> token) {
-        return Arrays.stream(token.getDeclaredConstructors())
+        Stream<Constructor<?>> constructors = Arrays.stream(token.getDeclaredConstructors())
                 .filter(checkModifier(Modifier::isPrivate).negate())
-                .findAny();
+                .filter(constructor -> Accessibility.findProblem(token, constructor) == null);
+        return reproducible ? constructors.min(MethodTable.SIGNATURE_ORDER) : constructors.findAny();
     }
 
 
     /**
-     * Generates the source code of abstract methods of the class token and all its subclasses.
+     * Writes the source code of abstract methods of the class token and all its subclasses.
      * @param token the source of abstract methods
-     * @return the generated code
+     * @param writer writer to save result
+     * @throws IOException when can not write to the target file
      */
-    private String getAllMethodsImplementations(Class<?> token) {
-        Set<MethodDataClass> methods = getAbstractMethodsFromSuperclasses(token);
-        addMethodsToSet(token.getMethods(), methods);
+    private void writeAllMethodsImplementations(Class<?> token, Writer writer) throws IOException {
+        for (Method method : getAbstractMethods(token)) {
+            writeMethodImplementation(method, writer);
+        }
+    }
 
-        return methods.stream()
-                .map(MethodDataClass::getMethod)
-                .map(this::getMethodImplementation)
-                .collect(Collectors.joining());
+    /**
+     * Finds abstract methods of the class token and all its superclasses and superinterfaces
+     * that are not implemented by any of them.
+     * Methods with the same name and parameter types are met only once.
+     * In reproducible mode the methods are sorted by their signatures.
+     * The lists are cached by {@link MethodTable}, so the repeated calls for the same token are cheap.
+     * @param token the source of abstract methods
+     * @return the found methods, the list is unmodifiable
+     * @see MethodTable
+     */
+    private List<Method> getAbstractMethods(Class<?> token) {
+        return MethodTable.getAbstractMethods(token, reproducible);
     }
 
     /**
-     * Generates the implementation for the given method.
+     * Writes the implementation for the given method.
      * It returns the default value if the the method's return type is not {@code void}.
      * @param method the method to implement
-     * @return the generated source code
+     * @param writer writer to save result
+     * @throws IOException when can not write to the target file
      */
-//    @NotNull
-    private String getMethodImplementation(/*@NotNull */Method method) {
+    private void writeMethodImplementation(/*@NotNull */Method method, Writer writer) throws IOException {
         Class<?> resultType = method.getReturnType();
-        String modifiers = Modifier.toString(
+        writer.write(Constants.INDENT);
+        writer.write(Modifier.toString(
                 method.getModifiers()
                         & ~Modifier.ABSTRACT
                         & ~Modifier.TRANSIENT //NOT SERIALIZABLE
                         & ~Modifier.NATIVE
-        );
-        String header = modifiers + " " +
-                resultType.getCanonicalName() + " " + method.getName()
-                + getDeclarationSinceArguments(method);
-
-        String returnValue = resultType.equals(void.class) ? ""
-                : "return " +
-                (resultType.equals(boolean.class) ? "false"
-                        : resultType.isPrimitive() ? "0"
-                        : "null") + ";";
-        return generateExecutable(header, returnValue);
-    }
-
-    /**
-     * Recursively adds the abstract methods from the class and all its superclasses to the set.
-     * @param token the source of the methods
-     * @return set of found methods
-     */
-//    @NotNull
-    private Set<MethodDataClass> getAbstractMethodsFromSuperclasses(/*@NotNull */Class<?> token) {
-//        assert !Modifier.isPrivate(token.getModifiers());
-        Set<MethodDataClass> res = new HashSet<>();
-        Class<?> cur = token;
-        while (cur != null) {
-            addMethodsToSet(cur.getDeclaredMethods(), res);
-            cur = cur.getSuperclass();
+        ));
+        writer.write(" ");
+        writer.write(resultType.getCanonicalName());
+        writer.write(" ");
+        writer.write(method.getName());
+        writeDeclarationSinceArguments(method, writer);
+        writer.write(Constants.BEGINNING_OF_EXECUTABLE);
+        if (!resultType.equals(void.class)) {
+            writer.write("return ");
+            writer.write(resultType.equals(boolean.class) ? "false"
+                    : resultType.isPrimitive() ? "0"
+                    : "null");
+            writer.write(";");
         }
-        return res;
-    }
-
-    /**
-     * Adds methods from array to set of method wrappers.
-     * @param declaredMethods the source array
-     * @param res the destination set
-     */
-    private void addMethodsToSet(Method[] declaredMethods, /*@NotNull*/ Set<MethodDataClass> res) {
-        Arrays.stream(declaredMethods)
-                .filter(checkModifier(Modifier::isAbstract))
-                .map(MethodDataClass::new)
-                .forEach(res::add);
+        writer.write(Constants.ENDING_OF_EXECUTABLE);
     }
 }
 /*
@@ -0,0 +1,270 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The class loader of {@code .jar}-files that finds the classes by the package index.
+ * The index {@code META-INF/INDEX.LIST} of each given {@code .jar}-file is read once when the loader is constructed;
+ * the {@code .jar}-files listed in the index are resolved against the directory of the indexed one.
+ * If a {@code .jar}-file has no index, it is built from its central directory.
+ * So each lookup searches only the {@code .jar}-files having the package of the class
+ * instead of all the {@code .jar}-files in order.
+ * The {@code .jar}-files must be on the default file system. They are opened on the first lookup
+ * and closed when the loader is closed.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Implementor#withJarIndex(boolean)
+ */
+public class IndexedJarClassLoader extends ClassLoader implements Closeable {
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * The {@code .jar}-files by the keys of their entries (see {@link JarIndex#directory(String)}).
+     * It is not modified after construction.
+     */
+    private final Map<String, List<Path>> index = new HashMap<>();
+    /**
+     * All the indexed {@code .jar}-files in the order of the class-path. They are searched for {@code META-INF} entries,
+     * which are not indexed.
+     */
+    private final List<Path> jars = new ArrayList<>();
+    private final ConcurrentMap<Path, ZipFile> archives = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs the loader of the {@code .jar}-files.
+     * @param jars the {@code .jar}-files in the order of the class-path
+     * @param parent the parent class loader
+     * @throws IOException when any of the {@code .jar}-files or its index can not be read.
+     */
+    public IndexedJarClassLoader(List<Path> jars, ClassLoader parent) throws IOException {
+        super(parent);
+        try {
+            for (Path jar : jars) {
+                addToIndex(jar.toAbsolutePath().normalize());
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the {@code .jar}-file and the {@code .jar}-files listed in its index to the index of the loader.
+     * @param jar the absolute path of the {@code .jar}-file
+     * @throws IOException when the {@code .jar}-file or its index can not be read.
+     */
+    private void addToIndex(Path jar) throws IOException {
+        ZipFile archive = open(jar);
+        ZipEntry indexEntry = archive.getEntry(JarIndex.NAME);
+        addJar(jar);
+        if (indexEntry == null) {
+            try {
+                archive.stream().map(ZipEntry::getName).filter(JarIndex::isIndexed)
+                        .forEach(name -> add(JarIndex.directory(name), jar));
+            } catch (IllegalStateException e) {
+                throw new IOException("Can not read " + jar + ": " + e.getMessage(), e);
+            }
+            return;
+        }
+        try (InputStream in = archive.getInputStream(indexEntry)) {
+            JarIndex.read(in).forEach((jarName, directories) -> {
+                Path listed = jar.resolveSibling(jarName).normalize();
+                addJar(listed);
+                for (String directory : directories) {
+                    add(directory, listed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the {@code .jar}-file to the list of all the {@code .jar}-files unless it is already there.
+     * @param jar the {@code .jar}-file
+     */
+    private void addJar(Path jar) {
+        if (!jars.contains(jar)) {
+            jars.add(jar);
+        }
+    }
+
+    /**
+     * Adds the {@code .jar}-file to the list of the key unless it is already there.
+     * @param key the key of the entries
+     * @param jar the {@code .jar}-file having the entries
+     */
+    private void add(String key, Path jar) {
+        List<Path> keyJars = index.computeIfAbsent(key, k -> new ArrayList<>(1));
+        if (!keyJars.contains(jar)) {
+            keyJars.add(jar);
+        }
+    }
+
+    /**
+     * Gives the opened {@code .jar}-file, opening it on the first call.
+     * @param jar the absolute path of the {@code .jar}-file
+     * @return the opened {@code .jar}-file
+     * @throws IOException when the {@code .jar}-file can not be opened or the loader is closed.
+     */
+    private ZipFile open(Path jar) throws IOException {
+        if (closed) {
+            throw new IOException("Class loader is closed");
+        }
+        try {
+            return archives.computeIfAbsent(jar, path -> {
+                try {
+                    return new ZipFile(path.toFile());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the {@code .jar}-files that can have the entry by the index.
+     * @param name the name of the entry
+     * @return the {@code .jar}-files in the order of the class-path
+     */
+    private List<Path> candidates(String name) {
+        if (!JarIndex.isIndexed(name)) {
+            return jars;
+        }
+        return index.getOrDefault(JarIndex.directory(name), List.of());
+    }
+
+    /**
+     * Finds the class in the indexed {@code .jar}-files and defines it.
+     * @param name the binary name of the class
+     * @return the defined class
+     * @throws ClassNotFoundException when the class is not found or can not be read.
+     */
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String entryName = name.replace('.', '/') + ".class";
+        try {
+            for (Path jar : candidates(entryName)) {
+                ZipFile archive = open(jar);
+                ZipEntry entry = archive.getEntry(entryName);
+                if (entry != null) {
+                    byte[] bytes;
+                    try (InputStream in = archive.getInputStream(entry)) {
+                        bytes = in.readAllBytes();
+                    }
+                    definePackageOf(name);
+                    return defineClass(name, bytes, 0, bytes.length);
+                }
+            }
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Can not read " + name + ": " + e.getMessage(), e);
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    /**
+     * Defines the package of the class unless it is already defined.
+     * @param className the binary name of the class
+     */
+    private void definePackageOf(String className) {
+        int dot = className.lastIndexOf('.');
+        if (dot < 0) {
+            return;
+        }
+        String packageName = className.substring(0, dot);
+        if (getDefinedPackage(packageName) == null) {
+            try {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            } catch (IllegalArgumentException e) {
+                // the package is defined by a parallel lookup
+            }
+        }
+    }
+
+    /**
+     * Finds the resource in the indexed {@code .jar}-files.
+     * @param name the name of the resource
+     * @return the {@code jar:} URL of the resource or {@code null} if it is not found
+     */
+    @Override
+    protected URL findResource(String name) {
+        List<URL> urls = findResourceUrls(name, true);
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    /**
+     * Finds all the resources with the name in the indexed {@code .jar}-files.
+     * @param name the name of the resource
+     * @return the {@code jar:} URLs of the resources
+     */
+    @Override
+    protected Enumeration<URL> findResources(String name) {
+        return Collections.enumeration(findResourceUrls(name, false));
+    }
+
+    /**
+     * Finds the resources with the name in the indexed {@code .jar}-files.
+     * @param name the name of the resource
+     * @param first if only the first resource is needed
+     * @return the {@code jar:} URLs of the resources
+     */
+    private List<URL> findResourceUrls(String name, boolean first) {
+        List<URL> urls = new ArrayList<>();
+        for (Path jar : candidates(name)) {
+            try {
+                if (open(jar).getEntry(name) != null) {
+                    urls.add(new URL("jar:" + jar.toUri() + "!/" + name));
+                    if (first) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // the resource can not be read, as if it is not found
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Closes the opened {@code .jar}-files. The classes that are not loaded yet can not be loaded after that.
+     * @throws IOException when any of the {@code .jar}-files can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        IOException exception = null;
+        for (ZipFile archive : archives.values()) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        archives.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
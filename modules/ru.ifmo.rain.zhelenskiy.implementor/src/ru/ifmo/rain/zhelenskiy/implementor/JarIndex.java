@@ -0,0 +1,108 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The index of the packages of {@code .jar}-files in {@code META-INF/INDEX.LIST} format.
+ * The index consists of the header and the sections separated by empty lines.
+ * Each section starts with the name of a {@code .jar}-file followed by the directories of its entries;
+ * the entries in the root of the {@code .jar}-file are listed by their own names.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see IndexedJarClassLoader
+ */
+final class JarIndex {
+    /**
+     * The name of the index entry.
+     */
+    static final String NAME = "META-INF/INDEX.LIST";
+
+    /**
+     * The header of the index.
+     */
+    private static final String HEADER = "JarIndex-Version: 1.0";
+
+    /**
+     * There are no instances of the utilities.
+     */
+    private JarIndex() {
+    }
+
+    /**
+     * Gives the key the entry is indexed by: its directory or its name if it is in the root.
+     * @param entryName the name of the entry
+     * @return the key of the entry
+     */
+    static String directory(String entryName) {
+        int slash = entryName.lastIndexOf('/');
+        return slash < 0 ? entryName : entryName.substring(0, slash);
+    }
+
+    /**
+     * Checks if the entry should be indexed. The directories and the entries of {@code META-INF} are not indexed.
+     * @param entryName the name of the entry
+     * @return if the entry should be indexed
+     */
+    static boolean isIndexed(String entryName) {
+        return !entryName.endsWith("/") && !entryName.startsWith("META-INF/");
+    }
+
+    /**
+     * Creates the index of the single {@code .jar}-file. The directories are sorted, so the index does not depend
+     * on the order of the entries.
+     * @param jarName the name of the {@code .jar}-file
+     * @param entryNames the names of the entries of the {@code .jar}-file
+     * @return the content of the index entry
+     */
+    static byte[] create(String jarName, Collection<String> entryNames) {
+        SortedSet<String> directories = new TreeSet<>();
+        for (String entryName : entryNames) {
+            if (isIndexed(entryName)) {
+                directories.add(directory(entryName));
+            }
+        }
+        StringBuilder index = new StringBuilder(HEADER).append("\n\n").append(jarName).append('\n');
+        for (String directory : directories) {
+            index.append(directory).append('\n');
+        }
+        return index.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the index.
+     * @param in the stream of the index entry, it is not closed
+     * @return map from the names of the {@code .jar}-files to their directories in the order of the index
+     * @throws IOException when the index can not be read or it is not valid.
+     */
+    static Map<String, List<String>> read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.trim().startsWith("JarIndex-Version:")) {
+            throw new IOException("Invalid jar index header: " + line);
+        }
+        Map<String, List<String>> index = new LinkedHashMap<>();
+        List<String> section = null;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                section = null;
+            } else if (section == null) {
+                section = index.computeIfAbsent(line, jarName -> new ArrayList<>());
+            } else {
+                section.add(line);
+            }
+        }
+        return index;
+    }
+}
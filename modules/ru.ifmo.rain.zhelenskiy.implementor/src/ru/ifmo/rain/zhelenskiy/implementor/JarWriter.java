@@ -0,0 +1,448 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * The writer of {@code .jar}-files that takes the entries already compressed.
+ * Unlike {@link java.util.jar.JarOutputStream} it does not compress the entries itself,
+ * so they can be compressed in parallel beforehand and then written in order.
+ * Only the entries and the central directory are written, {@code ZIP64} format is not supported.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class JarWriter implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034B50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+    private static final int END_SIGNATURE = 0x06054B50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074B50;
+    /**
+     * The general purpose flag telling that the sizes and the {@code CRC-32} follow the content of the entry.
+     */
+    private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+    /**
+     * The general purpose flag telling that the names are in {@code UTF-8}.
+     */
+    private static final int UTF_8_FLAG = 0x0800;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    /**
+     * The time that is before 1980 in any time zone, so it is written as the earliest {@code MS-DOS} time.
+     * The entries of reproducible {@code .jar}-files have this time.
+     */
+    static final long FIXED_TIME = 0;
+
+    /**
+     * The entry of the {@code .jar}-file with the content prepared to be written.
+     */
+    static final class Entry {
+        private final String path;
+        private final byte[] name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+
+        /**
+         * Constructs the entry with the content prepared to be written.
+         * @param name the name of the entry
+         * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+         * @param crc the {@code CRC-32} of the uncompressed content
+         * @param size the size of the uncompressed content
+         * @param data the content compressed with the method
+         */
+        private Entry(String name, int method, long crc, long size, byte[] data) {
+            this.path = name;
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+
+        /**
+         * Prepares the entry for the content.
+         * The content is stored as is if its size is not greater than the threshold or the level is
+         * {@link Deflater#NO_COMPRESSION}, otherwise it is deflated with the level.
+         * @param name the name of the entry
+         * @param content the uncompressed content
+         * @param level the deflate level
+         * @param storedThreshold the maximal size of stored content
+         * @return the prepared entry
+         */
+        static Entry of(String name, byte[] content, int level, int storedThreshold) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (level == Deflater.NO_COMPRESSION || content.length <= storedThreshold) {
+                return new Entry(name, ZipEntry.STORED, crc.getValue(), content.length, content);
+            }
+            Deflater deflater = new Deflater(level, true);
+            try {
+                deflater.setInput(content);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+                byte[] buffer = new byte[Math.max(512, Math.min(content.length, 1 << 16))];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return new Entry(name, ZipEntry.DEFLATED, crc.getValue(), content.length, out.toByteArray());
+            } finally {
+                deflater.end();
+            }
+        }
+
+        /**
+         * Prepares the entries for the contents as {@link #of(String, byte[], int, int)} does.
+         * @param contents map from entry names to their content
+         * @param level the deflate level
+         * @param storedThreshold the maximal size of stored content
+         * @param parallel if the entries should be deflated in parallel on the {@link ForkJoinPool#commonPool()}
+         * @return the prepared entries in the order of the map
+         */
+        static List<Entry> compress(Map<String, byte[]> contents, int level, int storedThreshold, boolean parallel) {
+            List<Entry> entries = new ArrayList<>(contents.size());
+            if (!parallel || contents.size() < 2) {
+                contents.forEach((name, content) -> entries.add(of(name, content, level, storedThreshold)));
+                return entries;
+            }
+            List<ForkJoinTask<Entry>> tasks = new ArrayList<>(contents.size());
+            contents.forEach((name, content) -> tasks.add(ForkJoinPool.commonPool().submit(
+                    () -> of(name, content, level, storedThreshold))));
+            for (ForkJoinTask<Entry> task : tasks) {
+                entries.add(task.join());
+            }
+            return entries;
+        }
+    }
+
+    private final OutputStream out;
+    private final int dosTime;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final byte[] header = new byte[46];
+    private final List<String> names = new ArrayList<>();
+    private final Set<String> replaced = new HashSet<>();
+    private long offset;
+    private int entries;
+
+    /**
+     * Constructs the writer to the stream.
+     * @param out the stream to write to, it is closed with the writer but not when the writer is finished
+     * @param time the modification time of all the entries in milliseconds since the epoch
+     */
+    JarWriter(OutputStream out, long time) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.dosTime = toDosTime(time);
+    }
+
+    /**
+     * Starts the copy of the existing {@code .jar}-file to add entries to it.
+     * The kept entries are copied to the stream as is with their local headers, so their content is neither
+     * inflated nor recompressed, and their records of the central directory are moved to the new offsets.
+     * The entries with the given names are not copied, so the space they took is reclaimed.
+     * The existing file is only read, the copy is expected to replace it when the writer is closed.
+     * @param file the {@code .jar}-file to add entries to
+     * @param out the stream to write the copy to, it is closed with the writer or if the copy fails
+     * @param names the names of the entries to be written, the existing entries with these names are replaced
+     * @param time the modification time of the new entries in milliseconds since the epoch
+     * @return the writer of the new entries
+     * @throws IOException when the file can not be read, the copy can not be written
+     * or the file is not a valid {@code .jar}-file.
+     */
+    static JarWriter append(Path file, OutputStream out, Collection<String> names, long time) throws IOException {
+        JarWriter writer = new JarWriter(out, time);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailSize = (int) Math.min(size, 22 + 0xFFFF);
+            ByteBuffer tail = read(channel, size - tailSize, tailSize);
+            int end = tailSize - 22;
+            while (end >= 0 && tail.getInt(end) != END_SIGNATURE) {
+                end--;
+            }
+            if (end < 0) {
+                throw new IOException("Not a jar-file: " + file);
+            }
+            int total = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & MAX_OFFSET;
+            long directoryOffset = tail.getInt(end + 16) & MAX_OFFSET;
+            if (total == MAX_ENTRIES || directorySize == MAX_OFFSET || directoryOffset == MAX_OFFSET) {
+                throw new IOException("ZIP64 is not supported: " + file);
+            }
+            if (directoryOffset + directorySize > size - tailSize + end) {
+                throw new IOException("Corrupted central directory of " + file);
+            }
+            ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+            Set<String> replaced = new HashSet<>(names);
+            for (int position = 0; position < directorySize; ) {
+                if (position + 46 > directorySize || directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                    throw new IOException("Corrupted central directory of " + file);
+                }
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int recordLength = 46 + nameLength
+                        + (directory.getShort(position + 30) & 0xFFFF) + (directory.getShort(position + 32) & 0xFFFF);
+                if (position + recordLength > directorySize) {
+                    throw new IOException("Corrupted central directory of " + file);
+                }
+                String name = new String(directory.array(), position + 46, nameLength, StandardCharsets.UTF_8);
+                if (replaced.contains(name)) {
+                    writer.replaced.add(name);
+                } else {
+                    writer.copy(channel, directory, position, recordLength, directoryOffset, file);
+                    writer.names.add(name);
+                }
+                position += recordLength;
+            }
+            return writer;
+        } catch (IOException | RuntimeException e) {
+            try {
+                writer.out.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the entry of the existing {@code .jar}-file with its local header and remembers its moved record
+     * of the central directory.
+     * @param channel the channel of the existing file
+     * @param directory the central directory of the existing file
+     * @param position the position of the record of the entry in the central directory
+     * @param recordLength the length of the record
+     * @param limit the offset of the central directory in the existing file, no entries are after it
+     * @param file the existing file
+     * @throws IOException when the entry can not be copied or it is corrupted.
+     */
+    private void copy(FileChannel channel, ByteBuffer directory, int position, int recordLength, long limit,
+                      Path file) throws IOException {
+        long localOffset = directory.getInt(position + 42) & MAX_OFFSET;
+        long compressedSize = directory.getInt(position + 20) & MAX_OFFSET;
+        if (localOffset + 30 > limit) {
+            throw new IOException("Corrupted entry of " + file);
+        }
+        ByteBuffer local = read(channel, localOffset, 30);
+        if (local.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupted entry of " + file);
+        }
+        long length = 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF) + compressedSize;
+        if ((local.getShort(6) & DATA_DESCRIPTOR_FLAG) != 0 && localOffset + length + 4 <= limit) {
+            boolean signed = read(channel, localOffset + length, 4).getInt(0) == DATA_DESCRIPTOR_SIGNATURE;
+            length += signed ? 16 : 12;
+        }
+        if (entries == MAX_ENTRIES || localOffset + length > limit || offset + length > MAX_OFFSET) {
+            throw new IOException("Corrupted entry of " + file);
+        }
+        transfer(channel, localOffset, length);
+
+        byte[] record = Arrays.copyOfRange(directory.array(), position, position + recordLength);
+        ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN).putInt(42, (int) offset);
+        centralDirectory.write(record);
+
+        offset += length;
+        entries++;
+    }
+    /**
+     * Copies the part of the file to the stream.
+     * @param channel the channel of the file
+     * @param position the position of the part in the file
+     * @param length the length of the part
+     * @throws IOException when can not read the part or write it.
+     */
+    private void transfer(FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 1 << 16));
+        for (long done = 0; done < length; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - done));
+            int read = channel.read(buffer, position + done);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of jar-file");
+            }
+            out.write(buffer.array(), 0, read);
+            done += read;
+        }
+    }
+
+    /**
+     * Reads the part of the file.
+     * @param channel the channel of the file
+     * @param position the position of the part in the file
+     * @param length the length of the part
+     * @return the little-endian buffer with the part
+     * @throws IOException when can not read the part.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of jar-file");
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Converts the time to {@code MS-DOS} format used by {@code .zip}-files.
+     * @param time the time in milliseconds since the epoch
+     * @return the time in {@code MS-DOS} format
+     */
+    private static int toDosTime(long time) {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (date.getYear() - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16
+                | date.getHour() << 11 | date.getMinute() << 5 | date.getSecond() >> 1;
+    }
+
+    /**
+     * Writes the entry and remembers its record of the central directory.
+     * @param entry the entry to write
+     * @throws IOException when can not write the entry or the {@code .jar}-file becomes too big.
+     */
+    void write(Entry entry) throws IOException {
+        if (entries == MAX_ENTRIES || offset + 30 + entry.name.length + entry.data.length > MAX_OFFSET) {
+            throw new IOException("Too big jar-file, ZIP64 is not supported");
+        }
+        int version = entry.method == ZipEntry.DEFLATED ? 20 : 10;
+        fillHeader(LOCAL_HEADER_SIGNATURE, 0, version, entry);
+        out.write(header, 0, 30);
+        out.write(entry.name);
+        out.write(entry.data);
+
+        fillHeader(CENTRAL_HEADER_SIGNATURE, 2, version, entry);
+        putShort(4, 20);
+        putShort(32, 0);
+        putShort(34, 0);
+        putShort(36, 0);
+        putInt(38, 0);
+        putInt(42, (int) offset);
+        centralDirectory.write(header, 0, 46);
+        centralDirectory.write(entry.name);
+
+        offset += 30 + entry.name.length + entry.data.length;
+        names.add(entry.path);
+        entries++;
+    }
+
+    /**
+     * Gives the names of the entries kept from the existing {@code .jar}-file and written by this writer.
+     * @return the names of the entries
+     */
+    List<String> names() {
+        return names;
+    }
+
+    /**
+     * Checks if the existing {@code .jar}-file had the entry that is going to be replaced.
+     * @param name the name of the entry given to {@link #append(Path, OutputStream, Collection, long)}
+     * @return if the entry was in the existing {@code .jar}-file
+     */
+    boolean hadEntry(String name) {
+        return replaced.contains(name);
+    }
+
+    /**
+     * Fills the fields of the header that are common for the local and the central headers.
+     * @param signature the signature of the header
+     * @param shift the shift of the common fields from the beginning of the header
+     * @param version the version needed to extract the entry
+     * @param entry the entry of the header
+     */
+    private void fillHeader(int signature, int shift, int version, Entry entry) {
+        putInt(0, signature);
+        putShort(shift + 4, version);
+        putShort(shift + 6, UTF_8_FLAG);
+        putShort(shift + 8, entry.method);
+        putInt(shift + 10, dosTime);
+        putInt(shift + 14, (int) entry.crc);
+        putInt(shift + 18, entry.data.length);
+        putInt(shift + 22, (int) entry.size);
+        putShort(shift + 26, entry.name.length);
+        putShort(shift + 28, 0);
+    }
+
+    /**
+     * Puts the little-endian 16-bit value to the header.
+     * @param index the index of the value in the header
+     * @param value the value to put
+     */
+    private void putShort(int index, int value) {
+        header[index] = (byte) value;
+        header[index + 1] = (byte) (value >>> 8);
+    }
+
+    /**
+     * Puts the little-endian 32-bit value to the header.
+     * @param index the index of the value in the header
+     * @param value the value to put
+     */
+    private void putInt(int index, int value) {
+        putShort(index, value);
+        putShort(index + 2, value >>> 16);
+    }
+
+    /**
+     * Writes the central directory and flushes the stream without closing it.
+     * @throws IOException when can not write the central directory.
+     */
+    void finish() throws IOException {
+        centralDirectory.writeTo(out);
+        putInt(0, END_SIGNATURE);
+        putShort(4, 0);
+        putShort(6, 0);
+        putShort(8, entries);
+        putShort(10, entries);
+        putInt(12, centralDirectory.size());
+        putInt(16, (int) offset);
+        putShort(20, 0);
+        out.write(header, 0, 22);
+        out.flush();
+    }
+
+    /**
+     * Closes the stream without writing the central directory, so the written content is not a valid
+     * {@code .jar}-file. Errors are ignored.
+     */
+    void abort() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // the content is abandoned anyway
+        }
+    }
+
+    /**
+     * Writes the central directory and closes the stream.
+     * @throws IOException when can not write the central directory.
+     */
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            finish();
+        }
+    }
+}
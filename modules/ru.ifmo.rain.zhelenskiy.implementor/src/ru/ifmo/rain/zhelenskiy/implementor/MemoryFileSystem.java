@@ -0,0 +1,796 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The file system that keeps all the files in memory.
+ * It is used as the scratch space of {@link Implementor}, so the temporary files never reach the disk
+ * and the cleanup is just closing the file system. It supports regular files and directories
+ * with basic attributes only. All the operations changing the tree are atomic.
+ * The content written to a file becomes visible when its channel is closed.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see MemoryFileSystemProvider
+ */
+final class MemoryFileSystem extends FileSystem {
+    private final MemoryFileSystemProvider provider;
+    private final String id;
+    private final Directory root = new Directory();
+    private volatile boolean open = true;
+
+    /**
+     * The node of the tree of files.
+     */
+    private abstract static class Node {
+        final FileTime creationTime = FileTime.fromMillis(System.currentTimeMillis());
+        volatile FileTime lastModifiedTime = creationTime;
+
+        /**
+         * Gives the size of the node.
+         * @return the size in bytes
+         */
+        abstract long size();
+    }
+
+    /**
+     * The directory.
+     */
+    private static final class Directory extends Node {
+        private final Map<String, Node> children = new TreeMap<>();
+
+        /**
+         * Gives the size of the directory.
+         * @return zero
+         */
+        @Override
+        long size() {
+            return 0;
+        }
+    }
+
+    /**
+     * The regular file.
+     */
+    private static final class RegularFile extends Node {
+        private volatile byte[] content = new byte[0];
+
+        /**
+         * Gives the size of the file.
+         * @return the size of the content
+         */
+        @Override
+        long size() {
+            return content.length;
+        }
+    }
+
+    /**
+     * The snapshot of the basic attributes of the node.
+     */
+    private static final class Attributes implements BasicFileAttributes {
+        private final Node node;
+        private final FileTime lastModifiedTime;
+        private final long size;
+
+        /**
+         * Takes the snapshot of the attributes.
+         * @param node the node to take attributes of
+         */
+        Attributes(Node node) {
+            this.node = node;
+            this.lastModifiedTime = node.lastModifiedTime;
+            this.size = node.size();
+        }
+
+        /**
+         * Gives the last modification time.
+         * @return the last modification time
+         */
+        @Override
+        public FileTime lastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        /**
+         * Gives the last access time that is not tracked.
+         * @return the last modification time
+         */
+        @Override
+        public FileTime lastAccessTime() {
+            return lastModifiedTime;
+        }
+
+        /**
+         * Gives the creation time.
+         * @return the creation time
+         */
+        @Override
+        public FileTime creationTime() {
+            return node.creationTime;
+        }
+
+        /**
+         * Checks if the node is a regular file.
+         * @return if the node is a regular file
+         */
+        @Override
+        public boolean isRegularFile() {
+            return node instanceof RegularFile;
+        }
+
+        /**
+         * Checks if the node is a directory.
+         * @return if the node is a directory
+         */
+        @Override
+        public boolean isDirectory() {
+            return node instanceof Directory;
+        }
+
+        /**
+         * There are no links in the file system.
+         * @return {@code false}
+         */
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        /**
+         * There are only regular files and directories in the file system.
+         * @return {@code false}
+         */
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        /**
+         * Gives the size of the node.
+         * @return the size in bytes
+         */
+        @Override
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Gives the key identifying the node.
+         * @return the node
+         */
+        @Override
+        public Object fileKey() {
+            return node;
+        }
+    }
+
+    /**
+     * The channel of the regular file. It works with a copy of the content,
+     * the written content replaces the content of the file when the channel is closed.
+     */
+    private final class ContentChannel implements SeekableByteChannel {
+        private final RegularFile file;
+        private final boolean readable;
+        private final boolean writable;
+        private final boolean append;
+        private byte[] data;
+        private int size;
+        private int position;
+        private boolean closed;
+
+        /**
+         * Opens the channel of the file.
+         * @param file the file to open
+         * @param readable if the channel can be read
+         * @param writable if the channel can be written
+         * @param append if the data is always written to the end
+         * @param truncate if the file is truncated
+         */
+        ContentChannel(RegularFile file, boolean readable, boolean writable, boolean append, boolean truncate) {
+            this.file = file;
+            this.readable = readable;
+            this.writable = writable;
+            this.append = append;
+            this.data = truncate ? new byte[0] : file.content;
+            this.size = data.length;
+            if (writable) {
+                data = Arrays.copyOf(data, Math.max(size, 64));
+            }
+        }
+
+        /**
+         * Checks that the channel is not closed.
+         * @throws ClosedChannelException when the channel is closed.
+         */
+        private void checkOpen() throws ClosedChannelException {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+        }
+
+        /**
+         * Reads the data from the current position.
+         * @param dst the buffer to read to
+         * @return the number of read bytes or {@code -1} at the end of the file
+         * @throws ClosedChannelException when the channel is closed.
+         */
+        @Override
+        public int read(ByteBuffer dst) throws ClosedChannelException {
+            checkOpen();
+            if (!readable) {
+                throw new NonReadableChannelException();
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int length = Math.min(dst.remaining(), size - position);
+            dst.put(data, position, length);
+            position += length;
+            return length;
+        }
+
+        /**
+         * Writes the data to the current position.
+         * @param src the buffer to write from
+         * @return the number of written bytes
+         * @throws IOException when the channel is closed or the file is too big.
+         */
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            checkOpen();
+            if (!writable) {
+                throw new NonWritableChannelException();
+            }
+            if (append) {
+                position = size;
+            }
+            int length = src.remaining();
+            if ((long) position + length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too big file");
+            }
+            if (position + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, position + length));
+            }
+            src.get(data, position, length);
+            position += length;
+            size = Math.max(size, position);
+            return length;
+        }
+
+        /**
+         * Gives the current position.
+         * @return the current position
+         * @throws ClosedChannelException when the channel is closed.
+         */
+        @Override
+        public long position() throws ClosedChannelException {
+            checkOpen();
+            return position;
+        }
+
+        /**
+         * Sets the current position. The gap after the end of the file is filled with zeros when written.
+         * @param newPosition the new position
+         * @return this channel
+         * @throws IOException when the channel is closed or the position is too big.
+         */
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            checkOpen();
+            if (newPosition < 0 || newPosition > Integer.MAX_VALUE - 8) {
+                throw new IOException("Invalid position: " + newPosition);
+            }
+            if (newPosition > size && writable) {
+                data = Arrays.copyOf(data, Math.max(data.length, (int) newPosition));
+            }
+            position = (int) newPosition;
+            return this;
+        }
+
+        /**
+         * Gives the current size of the file.
+         * @return the current size
+         * @throws ClosedChannelException when the channel is closed.
+         */
+        @Override
+        public long size() throws ClosedChannelException {
+            checkOpen();
+            return size;
+        }
+
+        /**
+         * Truncates the file.
+         * @param newSize the new size
+         * @return this channel
+         * @throws ClosedChannelException when the channel is closed.
+         */
+        @Override
+        public SeekableByteChannel truncate(long newSize) throws ClosedChannelException {
+            checkOpen();
+            if (!writable) {
+                throw new NonWritableChannelException();
+            }
+            if (newSize < 0) {
+                throw new IllegalArgumentException("Negative size: " + newSize);
+            }
+            if (newSize < size) {
+                Arrays.fill(data, (int) newSize, size, (byte) 0);
+                size = (int) newSize;
+            }
+            position = Math.min(position, size);
+            return this;
+        }
+
+        /**
+         * Checks if the channel is open.
+         * @return if the channel is open
+         */
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        /**
+         * Closes the channel and replaces the content of the file if the channel is writable.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (writable) {
+                    file.content = Arrays.copyOf(data, size);
+                    file.lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis());
+                }
+                data = null;
+            }
+        }
+    }
+
+    /**
+     * Constructs the empty file system.
+     * @param provider the provider of the file system
+     * @param id the identifier of the file system used in {@link java.net.URI}s of its paths
+     */
+    MemoryFileSystem(MemoryFileSystemProvider provider, String id) {
+        this.provider = provider;
+        this.id = id;
+    }
+
+    /**
+     * Gives the identifier of the file system.
+     * @return the identifier
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Checks that the file system is not closed.
+     * @throws ClosedFileSystemException when the file system is closed.
+     */
+    private void checkOpen() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+    }
+
+    /**
+     * Finds the node of the path. Should be called under the lock of the file system.
+     * @param path the path of the node
+     * @return the node or {@code null} if there is no such node
+     */
+    private Node find(MemoryPath path) {
+        checkOpen();
+        Node node = root;
+        for (String name : MemoryPath.of(path.toAbsolutePath().normalize()).names()) {
+            if (!(node instanceof Directory)) {
+                return null;
+            }
+            node = ((Directory) node).children.get(name);
+        }
+        return node;
+    }
+
+    /**
+     * Finds the existing node of the path. Should be called under the lock of the file system.
+     * @param path the path of the node
+     * @return the node
+     * @throws NoSuchFileException when the file does not exist.
+     */
+    private Node findExisting(MemoryPath path) throws NoSuchFileException {
+        Node node = find(path);
+        if (node == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return node;
+    }
+
+    /**
+     * Finds the directory containing the path. Should be called under the lock of the file system.
+     * @param path the path to find the parent of
+     * @return the parent directory
+     * @throws IOException when the parent directory does not exist or the path is the root.
+     */
+    private Directory findParent(MemoryPath path) throws IOException {
+        Path parent = path.toAbsolutePath().normalize().getParent();
+        if (parent == null) {
+            throw new FileSystemException(path.toString(), null, "Root directory can not be changed");
+        }
+        Node node = find(MemoryPath.of(parent));
+        if (!(node instanceof Directory)) {
+            throw new NoSuchFileException(parent.toString());
+        }
+        return (Directory) node;
+    }
+
+    /**
+     * Gives the name of the file in its parent directory.
+     * @param path the path of the file
+     * @return the name of the file
+     */
+    private static String nameOf(MemoryPath path) {
+        String[] names = MemoryPath.of(path.toAbsolutePath().normalize()).names();
+        return names[names.length - 1];
+    }
+
+    /**
+     * Checks that the file exists.
+     * @param path the path of the file
+     * @throws NoSuchFileException when the file does not exist.
+     */
+    synchronized void checkExists(MemoryPath path) throws NoSuchFileException {
+        findExisting(path);
+    }
+
+    /**
+     * Opens the channel of the regular file.
+     * @param path the path of the file
+     * @param options the options of {@link StandardOpenOption}, the others are ignored
+     * @return the opened channel
+     * @throws IOException when the file can not be opened with the options.
+     */
+    synchronized SeekableByteChannel newByteChannel(MemoryPath path, Set<? extends OpenOption> options) throws IOException {
+        boolean append = options.contains(StandardOpenOption.APPEND);
+        boolean writable = append || options.contains(StandardOpenOption.WRITE);
+        boolean readable = options.contains(StandardOpenOption.READ) || !writable;
+        if (append && (readable || options.contains(StandardOpenOption.TRUNCATE_EXISTING))) {
+            throw new IllegalArgumentException("APPEND can not be combined with READ or TRUNCATE_EXISTING");
+        }
+        Directory parent = findParent(path);
+        String name = nameOf(path);
+        Node node = parent.children.get(name);
+        if (node != null && writable && options.contains(StandardOpenOption.CREATE_NEW)) {
+            throw new FileAlreadyExistsException(path.toString());
+        }
+        if (node == null) {
+            if (!writable || !options.contains(StandardOpenOption.CREATE) && !options.contains(StandardOpenOption.CREATE_NEW)) {
+                throw new NoSuchFileException(path.toString());
+            }
+            node = new RegularFile();
+            parent.children.put(name, node);
+        }
+        if (!(node instanceof RegularFile)) {
+            throw new FileSystemException(path.toString(), null, "Is a directory");
+        }
+        return new ContentChannel((RegularFile) node, readable, writable, append,
+                writable && options.contains(StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Lists the directory. The listing is a snapshot taken when the stream is opened.
+     * @param dir the path of the directory
+     * @param filter the filter of the entries
+     * @return the stream of the entries
+     * @throws IOException when the directory does not exist.
+     */
+    synchronized DirectoryStream<Path> newDirectoryStream(MemoryPath dir, DirectoryStream.Filter<? super Path> filter)
+            throws IOException {
+        Node node = findExisting(dir);
+        if (!(node instanceof Directory)) {
+            throw new NotDirectoryException(dir.toString());
+        }
+        List<Path> entries = new ArrayList<>();
+        for (String name : ((Directory) node).children.keySet()) {
+            entries.add(dir.resolve(name));
+        }
+        return new DirectoryStream<>() {
+            private boolean iterated;
+
+            @Override
+            public Iterator<Path> iterator() {
+                if (iterated) {
+                    throw new IllegalStateException("Iterator is already obtained");
+                }
+                iterated = true;
+                Iterator<Path> iterator = entries.iterator();
+                return new Iterator<>() {
+                    private Path next;
+
+                    @Override
+                    public boolean hasNext() {
+                        try {
+                            while (next == null && iterator.hasNext()) {
+                                Path entry = iterator.next();
+                                if (filter.accept(entry)) {
+                                    next = entry;
+                                }
+                            }
+                        } catch (IOException e) {
+                            throw new DirectoryIteratorException(e);
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Path next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Path result = next;
+                        next = null;
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Creates the directory.
+     * @param dir the path of the directory
+     * @throws IOException when the file already exists or the parent directory does not exist.
+     */
+    synchronized void createDirectory(MemoryPath dir) throws IOException {
+        if (find(dir) == root) {
+            throw new FileAlreadyExistsException(dir.toString());
+        }
+        Directory parent = findParent(dir);
+        if (parent.children.putIfAbsent(nameOf(dir), new Directory()) != null) {
+            throw new FileAlreadyExistsException(dir.toString());
+        }
+    }
+
+    /**
+     * Deletes the file or the empty directory.
+     * @param path the path of the file
+     * @throws IOException when the file does not exist or it is not empty directory.
+     */
+    synchronized void delete(MemoryPath path) throws IOException {
+        Node node = findExisting(path);
+        if (node instanceof Directory && !((Directory) node).children.isEmpty()) {
+            throw new DirectoryNotEmptyException(path.toString());
+        }
+        findParent(path).children.remove(nameOf(path));
+    }
+
+    /**
+     * Copies or moves the file. The directories are copied without their entries.
+     * The operation is atomic, the target is replaced if {@link StandardCopyOption#REPLACE_EXISTING}
+     * or {@link StandardCopyOption#ATOMIC_MOVE} is given.
+     * @param source the path of the file to copy
+     * @param target the path of the copy
+     * @param move if the source should be removed
+     * @param options the options of {@link StandardCopyOption}, the others are ignored
+     * @throws IOException when the file can not be copied.
+     */
+    synchronized void transfer(MemoryPath source, MemoryPath target, boolean move, CopyOption... options)
+            throws IOException {
+        Node node = findExisting(source);
+        Node existing = find(target);
+        if (existing == node) {
+            return;
+        }
+        List<CopyOption> optionList = Arrays.asList(options);
+        if (existing != null) {
+            if (!optionList.contains(StandardCopyOption.REPLACE_EXISTING) && !optionList.contains(StandardCopyOption.ATOMIC_MOVE)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            if (existing instanceof Directory && !((Directory) existing).children.isEmpty()) {
+                throw new DirectoryNotEmptyException(target.toString());
+            }
+        }
+        Path absoluteSource = source.toAbsolutePath().normalize();
+        if (move && node instanceof Directory && target.toAbsolutePath().normalize().startsWith(absoluteSource)) {
+            throw new FileSystemException(source.toString(), target.toString(), "Can not move directory into itself");
+        }
+        Directory targetParent = findParent(target);
+        Node copy = node;
+        if (move) {
+            findParent(source).children.remove(nameOf(source));
+        } else if (node instanceof RegularFile) {
+            RegularFile file = new RegularFile();
+            file.content = ((RegularFile) node).content;
+            copy = file;
+        } else {
+            copy = new Directory();
+        }
+        targetParent.children.put(nameOf(target), copy);
+    }
+
+    /**
+     * Checks if the paths locate the same file.
+     * @param path the first path
+     * @param other the second path
+     * @return if the paths locate the same file
+     * @throws NoSuchFileException when the paths are different and some of the files does not exist.
+     */
+    synchronized boolean isSameFile(MemoryPath path, MemoryPath other) throws NoSuchFileException {
+        return path.equals(other) || findExisting(path) == findExisting(other);
+    }
+
+    /**
+     * Reads the basic attributes of the file.
+     * @param path the path of the file
+     * @return the snapshot of the attributes
+     * @throws NoSuchFileException when the file does not exist.
+     */
+    synchronized BasicFileAttributes readAttributes(MemoryPath path) throws NoSuchFileException {
+        return new Attributes(findExisting(path));
+    }
+
+    /**
+     * Sets the last modification time of the file.
+     * @param path the path of the file
+     * @param time the new time or {@code null} to keep the time
+     * @throws NoSuchFileException when the file does not exist.
+     */
+    synchronized void setLastModifiedTime(MemoryPath path, FileTime time) throws NoSuchFileException {
+        Node node = findExisting(path);
+        if (time != null) {
+            node.lastModifiedTime = time;
+        }
+    }
+
+    /**
+     * Gives the provider of the file system.
+     * @return the provider
+     */
+    @Override
+    public MemoryFileSystemProvider provider() {
+        return provider;
+    }
+
+    /**
+     * Closes the file system dropping all its files.
+     */
+    @Override
+    public synchronized void close() {
+        open = false;
+        root.children.clear();
+    }
+
+    /**
+     * Checks if the file system is open.
+     * @return if the file system is open
+     */
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * The file system is writable.
+     * @return {@code false}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Gives the separator of the names.
+     * @return {@code /}
+     */
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    /**
+     * Gives the only root directory.
+     * @return the list with {@code /}
+     */
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return List.of(getPath("/"));
+    }
+
+    /**
+     * File stores are not supported.
+     * @return the empty list
+     */
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return List.of();
+    }
+
+    /**
+     * Gives the names of the supported attribute views.
+     * @return the set with {@code basic}
+     */
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Set.of("basic");
+    }
+
+    /**
+     * Parses the path joining the strings with {@code /}.
+     * @param first the first part of the path
+     * @param more the other parts of the path
+     * @return the parsed path
+     */
+    @Override
+    public MemoryPath getPath(String first, String... more) {
+        return MemoryPath.parse(this, first, more);
+    }
+
+    /**
+     * Gives the matcher of the paths. The pattern is matched against the string representations of the paths
+     * as the default file system matches its paths.
+     * @param syntaxAndPattern the syntax and the pattern
+     * @return the matcher
+     */
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+        return path -> matcher.matches(Path.of(path.toString()));
+    }
+
+    /**
+     * Principals are not supported.
+     * @return never returns
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException("Principals are not supported");
+    }
+
+    /**
+     * Watching is not supported.
+     * @return never returns
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("Watching is not supported");
+    }
+}
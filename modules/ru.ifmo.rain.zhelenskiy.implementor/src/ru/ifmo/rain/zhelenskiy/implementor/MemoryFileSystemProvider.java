@@ -0,0 +1,351 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The provider of {@link MemoryFileSystem}s. It is not installed, so the file systems are only created
+ * by {@link #newFileSystem()} and can not be found by their {@link URI}s. Each file system is independent
+ * and is dropped with all its files when it is closed.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class MemoryFileSystemProvider extends FileSystemProvider {
+    /**
+     * The scheme of {@link URI}s of the paths.
+     */
+    static final String SCHEME = "memory";
+
+    /**
+     * The only instance of the provider.
+     */
+    private static final MemoryFileSystemProvider INSTANCE = new MemoryFileSystemProvider();
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Use {@link #newFileSystem()} to create file systems.
+     */
+    private MemoryFileSystemProvider() {
+    }
+
+    /**
+     * Creates a new empty file system.
+     * @return the created file system
+     */
+    static MemoryFileSystem newFileSystem() {
+        return new MemoryFileSystem(INSTANCE, "fs" + INSTANCE.lastId.incrementAndGet());
+    }
+
+    /**
+     * Gives the scheme of {@link URI}s of the paths.
+     * @return {@value #SCHEME}
+     */
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    /**
+     * Creates a new empty file system, the {@link URI} and the environment are ignored.
+     * @param uri ignored
+     * @param env ignored
+     * @return the created file system
+     */
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+        return newFileSystem();
+    }
+
+    /**
+     * The file systems can not be found by {@link URI}.
+     * @param uri the {@link URI} of the file system
+     * @return never returns
+     * @throws FileSystemNotFoundException always.
+     */
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+        throw new FileSystemNotFoundException(uri.toString());
+    }
+
+    /**
+     * The paths can not be found by {@link URI}.
+     * @param uri the {@link URI} of the path
+     * @return never returns
+     * @throws FileSystemNotFoundException always.
+     */
+    @Override
+    public Path getPath(URI uri) {
+        throw new FileSystemNotFoundException(uri.toString());
+    }
+
+    /**
+     * Opens the channel of the regular file.
+     * @param path the path of the file
+     * @param options the options of opening
+     * @param attrs ignored
+     * @return the opened channel
+     * @throws IOException when the file can not be opened.
+     */
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+            throws IOException {
+        MemoryPath memoryPath = MemoryPath.of(path);
+        return memoryPath.getFileSystem().newByteChannel(memoryPath, options);
+    }
+
+    /**
+     * Lists the directory.
+     * @param dir the path of the directory
+     * @param filter the filter of the entries
+     * @return the stream of the entries
+     * @throws IOException when the directory does not exist.
+     */
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+            throws IOException {
+        MemoryPath memoryPath = MemoryPath.of(dir);
+        return memoryPath.getFileSystem().newDirectoryStream(memoryPath, filter);
+    }
+
+    /**
+     * Creates the directory.
+     * @param dir the path of the directory
+     * @param attrs ignored
+     * @throws IOException when the directory can not be created.
+     */
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+        MemoryPath memoryPath = MemoryPath.of(dir);
+        memoryPath.getFileSystem().createDirectory(memoryPath);
+    }
+
+    /**
+     * Deletes the file or the empty directory.
+     * @param path the path of the file
+     * @throws IOException when the file can not be deleted.
+     */
+    @Override
+    public void delete(Path path) throws IOException {
+        MemoryPath memoryPath = MemoryPath.of(path);
+        memoryPath.getFileSystem().delete(memoryPath);
+    }
+
+    /**
+     * Copies the file within its file system.
+     * @param source the path of the file to copy
+     * @param target the path of the copy
+     * @param options the options of copying
+     * @throws IOException when the file can not be copied.
+     */
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException {
+        transfer(source, target, false, options);
+    }
+
+    /**
+     * Moves the file within its file system. The move is always atomic.
+     * @param source the path of the file to move
+     * @param target the new path of the file
+     * @param options the options of moving
+     * @throws IOException when the file can not be moved.
+     */
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException {
+        transfer(source, target, true, options);
+    }
+
+    /**
+     * Copies or moves the file within its file system.
+     * @param source the path of the file
+     * @param target the new path of the file
+     * @param move if the source should be removed
+     * @param options the options of copying
+     * @throws IOException when the file can not be copied or the paths are of different file systems.
+     */
+    private static void transfer(Path source, Path target, boolean move, CopyOption... options) throws IOException {
+        MemoryPath memorySource = MemoryPath.of(source);
+        MemoryPath memoryTarget = MemoryPath.of(target);
+        if (memorySource.getFileSystem() != memoryTarget.getFileSystem()) {
+            throw new IOException("Can not transfer files between different file systems");
+        }
+        memorySource.getFileSystem().transfer(memorySource, memoryTarget, move, options);
+    }
+
+    /**
+     * Checks if the paths locate the same file.
+     * @param path the first path
+     * @param other the second path
+     * @return if the paths locate the same file
+     * @throws IOException when some of the files does not exist.
+     */
+    @Override
+    public boolean isSameFile(Path path, Path other) throws IOException {
+        if (!(other instanceof MemoryPath) || MemoryPath.of(path).getFileSystem() != ((MemoryPath) other).getFileSystem()) {
+            return false;
+        }
+        return MemoryPath.of(path).getFileSystem().isSameFile(MemoryPath.of(path), (MemoryPath) other);
+    }
+
+    /**
+     * There are no hidden files in the file system.
+     * @param path the path of the file
+     * @return {@code false}
+     */
+    @Override
+    public boolean isHidden(Path path) {
+        return false;
+    }
+
+    /**
+     * File stores are not supported.
+     * @param path the path of the file
+     * @return never returns
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public FileStore getFileStore(Path path) {
+        throw new UnsupportedOperationException("File stores are not supported");
+    }
+
+    /**
+     * Checks that the file exists. All the files are accessible.
+     * @param path the path of the file
+     * @param modes ignored
+     * @throws IOException when the file does not exist.
+     */
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        MemoryPath memoryPath = MemoryPath.of(path);
+        memoryPath.getFileSystem().checkExists(memoryPath);
+    }
+
+    /**
+     * Gives the view of the basic attributes of the file.
+     * @param path the path of the file
+     * @param type the class of the view
+     * @param options ignored
+     * @param <V> the type of the view
+     * @return the view or {@code null} if the view is not {@link BasicFileAttributeView}
+     */
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        MemoryPath memoryPath = MemoryPath.of(path);
+        return type.cast(new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return memoryPath.getFileSystem().readAttributes(memoryPath);
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime)
+                    throws IOException {
+                memoryPath.getFileSystem().setLastModifiedTime(memoryPath, lastModifiedTime);
+            }
+        });
+    }
+
+    /**
+     * Reads the basic attributes of the file.
+     * @param path the path of the file
+     * @param type the class of the attributes
+     * @param options ignored
+     * @param <A> the type of the attributes
+     * @return the attributes
+     * @throws IOException when the file does not exist.
+     * @throws UnsupportedOperationException when the attributes are not {@link BasicFileAttributes}.
+     */
+    @Override
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException("Only basic attributes are supported");
+        }
+        MemoryPath memoryPath = MemoryPath.of(path);
+        return type.cast(memoryPath.getFileSystem().readAttributes(memoryPath));
+    }
+
+    /**
+     * Reads the basic attributes of the file as a map.
+     * @param path the path of the file
+     * @param attributes the names of the attributes, optionally prefixed with {@code basic:}, or {@code *}
+     * @param options ignored
+     * @return map from names of the attributes to their values
+     * @throws IOException when the file does not exist.
+     */
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+        String names = attributes.startsWith("basic:") ? attributes.substring("basic:".length()) : attributes;
+        if (names.contains(":")) {
+            throw new UnsupportedOperationException("Only basic attributes are supported");
+        }
+        BasicFileAttributes basic = readAttributes(path, BasicFileAttributes.class);
+        Map<String, Object> all = new HashMap<>();
+        all.put("lastModifiedTime", basic.lastModifiedTime());
+        all.put("lastAccessTime", basic.lastAccessTime());
+        all.put("creationTime", basic.creationTime());
+        all.put("size", basic.size());
+        all.put("isRegularFile", basic.isRegularFile());
+        all.put("isDirectory", basic.isDirectory());
+        all.put("isSymbolicLink", basic.isSymbolicLink());
+        all.put("isOther", basic.isOther());
+        all.put("fileKey", basic.fileKey());
+        if (names.equals("*")) {
+            return all;
+        }
+        Map<String, Object> result = new HashMap<>();
+        for (String name : names.split(",")) {
+            if (!all.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown attribute: " + name);
+            }
+            result.put(name, all.get(name));
+        }
+        return result;
+    }
+
+    /**
+     * Sets the attribute of the file. Only the last modification time can be set.
+     * @param path the path of the file
+     * @param attribute the name of the attribute, optionally prefixed with {@code basic:}
+     * @param value the new value
+     * @param options ignored
+     * @throws IOException when the file does not exist.
+     */
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+        String name = attribute.startsWith("basic:") ? attribute.substring("basic:".length()) : attribute;
+        if (!name.equals("lastModifiedTime")) {
+            throw new UnsupportedOperationException("Can not set attribute: " + attribute);
+        }
+        MemoryPath memoryPath = MemoryPath.of(path);
+        memoryPath.getFileSystem().setLastModifiedTime(memoryPath, (FileTime) value);
+    }
+}
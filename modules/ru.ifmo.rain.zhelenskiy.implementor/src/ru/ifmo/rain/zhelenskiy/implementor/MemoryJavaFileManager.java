@@ -0,0 +1,180 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+
+/**
+ * The file manager that gives the compiled classes to {@link ClassSink} instead of writing them to the disk.
+ * All the other requests are forwarded to the underlying file manager.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see ForwardingJavaFileManager
+ */
+class MemoryJavaFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+    private final ClassSink sink;
+
+    /**
+     * The source code held in memory.
+     */
+    static class SourceFile extends SimpleJavaFileObject {
+        private final CharSequence source;
+
+        /**
+         * Constructs the source file with the given binary name of the class and its source code.
+         * @param className the binary name of the class
+         * @param source the source code of the class
+         */
+        SourceFile(String className, CharSequence source) {
+            super(createUri(className, Kind.SOURCE), Kind.SOURCE);
+            this.source = source;
+        }
+
+        /**
+         * Gives the source code of the class.
+         * @param ignoreEncodingErrors ignored as no decoding is done
+         * @return the source code
+         */
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * The source code rendered each time the compiler reads it. No copy of the source code is kept,
+     * so a batch of such files takes only as much memory as the compiler holds itself.
+     */
+    static class LazySourceFile extends SimpleJavaFileObject {
+        /**
+         * The rendering of the source code.
+         */
+        @FunctionalInterface
+        interface Renderer {
+            /**
+             * Writes the source code.
+             * @param writer the writer to write the source code to, it may be closed by the rendering
+             * @throws IOException when the source code can not be rendered.
+             */
+            void render(Writer writer) throws IOException;
+        }
+
+        private final int estimatedSize;
+        private final Renderer renderer;
+
+        /**
+         * Constructs the source file with the given binary name of the class and the rendering of its source code.
+         * @param className the binary name of the class
+         * @param estimatedSize the expected size of the source code
+         * @param renderer the rendering of the source code
+         */
+        LazySourceFile(String className, int estimatedSize, Renderer renderer) {
+            super(createUri(className, Kind.SOURCE), Kind.SOURCE);
+            this.estimatedSize = estimatedSize;
+            this.renderer = renderer;
+        }
+
+        /**
+         * Renders the source code of the class.
+         * @param ignoreEncodingErrors ignored as no decoding is done
+         * @return the rendered source code
+         * @throws IOException when the source code can not be rendered.
+         */
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+            StringWriter writer = new StringWriter(estimatedSize);
+            renderer.render(writer);
+            return writer.getBuffer();
+        }
+    }
+
+    /**
+     * The compiled class given to the sink when it is written.
+     */
+    static class ClassFile extends SimpleJavaFileObject {
+        private final String className;
+        private final ClassSink sink;
+
+        /**
+         * Constructs the empty class file for the class with the given binary name.
+         * @param className the binary name of the class
+         * @param sink the sink to give the compiled class to
+         */
+        ClassFile(String className, ClassSink sink) {
+            super(createUri(className, Kind.CLASS), Kind.CLASS);
+            this.className = className;
+            this.sink = sink;
+        }
+
+        /**
+         * Gives the stream to write the compiled class to. The class is given to the sink when the stream is closed.
+         * @return the stream to the internal buffer
+         */
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    sink.putClass(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    /**
+     * Constructs the manager forwarding to the given one.
+     * @param fileManager the underlying file manager used to read the class-path
+     * @param sink the sink to give the compiled classes to
+     */
+    MemoryJavaFileManager(JavaFileManager fileManager, ClassSink sink) {
+        super(fileManager);
+        this.sink = sink;
+    }
+
+    /**
+     * Generates the {@link URI} for the in-memory file.
+     * @param className the binary name of the class
+     * @param kind the kind of the file
+     * @return the generated {@link URI}
+     */
+    private static URI createUri(String className, JavaFileObject.Kind kind) {
+        return URI.create("string:///" + className.replace('.', '/') + kind.extension);
+    }
+
+    /**
+     * Gives the binary name of the class of the in-memory source file.
+     * @param source the source file created with {@link #createUri(String, JavaFileObject.Kind)}
+     * @return the binary name of the class
+     */
+    static String getClassName(JavaFileObject source) {
+        String path = source.toUri().getPath();
+        return path.substring(1, path.length() - JavaFileObject.Kind.SOURCE.extension.length()).replace('/', '.');
+    }
+
+    /**
+     * Creates in-memory class file for the compiler output.
+     * Other kinds of files are created by the underlying file manager.
+     * @param location the location of the file
+     * @param className the binary name of the class
+     * @param kind the kind of the file
+     * @param sibling the source file of the class
+     * @return the created file object
+     * @throws IOException when the underlying file manager can not create the file
+     */
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+        if (kind != JavaFileObject.Kind.CLASS) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+        return new ClassFile(className, sink);
+    }
+}
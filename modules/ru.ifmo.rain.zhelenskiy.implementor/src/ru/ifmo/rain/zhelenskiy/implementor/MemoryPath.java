@@ -0,0 +1,346 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The path of {@link MemoryFileSystem}. The names are separated by {@code /}, the only root is {@code /}.
+ * The path is immutable.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class MemoryPath implements Path {
+    private final MemoryFileSystem fileSystem;
+    private final boolean absolute;
+    private final String[] names;
+
+    /**
+     * Constructs the path from its names.
+     * @param fileSystem the file system of the path
+     * @param absolute if the path starts with the root
+     * @param names the non-empty names of the path
+     */
+    private MemoryPath(MemoryFileSystem fileSystem, boolean absolute, String[] names) {
+        this.fileSystem = fileSystem;
+        this.absolute = absolute;
+        this.names = names;
+    }
+
+    /**
+     * Parses the path joining the strings with {@code /}.
+     * @param fileSystem the file system of the path
+     * @param first the first part of the path
+     * @param more the other parts of the path
+     * @return the parsed path
+     * @throws InvalidPathException when the path contains {@code NUL} character.
+     */
+    static MemoryPath parse(MemoryFileSystem fileSystem, String first, String... more) {
+        String path = more.length == 0 ? first : first + "/" + String.join("/", more);
+        if (path.indexOf('\0') >= 0) {
+            throw new InvalidPathException(path, "Nul character is not allowed");
+        }
+        return new MemoryPath(fileSystem, path.startsWith("/"),
+                Arrays.stream(path.split("/")).filter(name -> !name.isEmpty()).toArray(String[]::new));
+    }
+
+    /**
+     * Converts the path of any provider to {@link MemoryPath}.
+     * @param path the path to convert
+     * @return the same path
+     * @throws ProviderMismatchException when the path is not {@link MemoryPath}.
+     */
+    static MemoryPath of(Path path) {
+        if (path instanceof MemoryPath) {
+            return (MemoryPath) path;
+        }
+        throw new ProviderMismatchException(String.valueOf(path));
+    }
+
+    /**
+     * Gives the names of the path.
+     * @return the names that should not be modified
+     */
+    String[] names() {
+        return names;
+    }
+
+    /**
+     * Gives the file system of the path.
+     * @return the file system
+     */
+    @Override
+    public MemoryFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Checks if the path starts with the root.
+     * @return if the path is absolute
+     */
+    @Override
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    /**
+     * Gives the root of the path.
+     * @return the root or {@code null} if the path is relative
+     */
+    @Override
+    public Path getRoot() {
+        return absolute ? new MemoryPath(fileSystem, true, new String[0]) : null;
+    }
+
+    /**
+     * Gives the last name of the path.
+     * @return the last name or {@code null} if the path is empty
+     */
+    @Override
+    public Path getFileName() {
+        return names.length == 0 ? null : new MemoryPath(fileSystem, false, new String[]{names[names.length - 1]});
+    }
+
+    /**
+     * Gives the path without its last name.
+     * @return the parent or {@code null} if there is no parent
+     */
+    @Override
+    public Path getParent() {
+        if (names.length == 0 || names.length == 1 && !absolute) {
+            return null;
+        }
+        return new MemoryPath(fileSystem, absolute, Arrays.copyOf(names, names.length - 1));
+    }
+
+    /**
+     * Gives the number of the names of the path.
+     * @return the number of the names
+     */
+    @Override
+    public int getNameCount() {
+        return names.length;
+    }
+
+    /**
+     * Gives the name of the path.
+     * @param index the index of the name
+     * @return the relative path of the single name
+     */
+    @Override
+    public Path getName(int index) {
+        return subpath(index, index + 1);
+    }
+
+    /**
+     * Gives the names of the path in the range.
+     * @param beginIndex the index of the first name
+     * @param endIndex the index after the last name
+     * @return the relative path of the names
+     */
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || endIndex > names.length || beginIndex >= endIndex) {
+            throw new IllegalArgumentException("Invalid subpath [" + beginIndex + ", " + endIndex + ") of " + this);
+        }
+        return new MemoryPath(fileSystem, false, Arrays.copyOfRange(names, beginIndex, endIndex));
+    }
+
+    /**
+     * Checks if the path starts with the names of the other path.
+     * @param other the prefix
+     * @return if the path starts with the other one
+     */
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof MemoryPath)) {
+            return false;
+        }
+        MemoryPath path = (MemoryPath) other;
+        return path.fileSystem == fileSystem && path.absolute == absolute && path.names.length <= names.length
+                && Arrays.equals(names, 0, path.names.length, path.names, 0, path.names.length);
+    }
+
+    /**
+     * Checks if the path ends with the names of the other path.
+     * @param other the suffix
+     * @return if the path ends with the other one
+     */
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof MemoryPath)) {
+            return false;
+        }
+        MemoryPath path = (MemoryPath) other;
+        if (path.absolute) {
+            return equals(path);
+        }
+        return path.fileSystem == fileSystem && path.names.length <= names.length && (path.names.length > 0 || !absolute)
+                && Arrays.equals(names, names.length - path.names.length, names.length, path.names, 0, path.names.length);
+    }
+
+    /**
+     * Removes {@code .} and resolves {@code ..} names.
+     * @return the normalized path
+     */
+    @Override
+    public Path normalize() {
+        Deque<String> result = new ArrayDeque<>();
+        for (String name : names) {
+            if (name.equals("..")) {
+                if (!result.isEmpty() && !result.peekLast().equals("..")) {
+                    result.pollLast();
+                } else if (!absolute) {
+                    result.addLast(name);
+                }
+            } else if (!name.equals(".")) {
+                result.addLast(name);
+            }
+        }
+        return new MemoryPath(fileSystem, absolute, result.toArray(new String[0]));
+    }
+
+    /**
+     * Resolves the other path against this one.
+     * @param other the path to resolve
+     * @return the other path if it is absolute, otherwise the concatenation of the paths
+     */
+    @Override
+    public Path resolve(Path other) {
+        MemoryPath path = of(other);
+        if (path.absolute) {
+            return path;
+        }
+        if (path.names.length == 0) {
+            return this;
+        }
+        String[] result = Arrays.copyOf(names, names.length + path.names.length);
+        System.arraycopy(path.names, 0, result, names.length, path.names.length);
+        return new MemoryPath(fileSystem, absolute, result);
+    }
+
+    /**
+     * Constructs the relative path from this path to the other one.
+     * @param other the target path
+     * @return the relative path
+     */
+    @Override
+    public Path relativize(Path other) {
+        MemoryPath path = of(other);
+        if (path.absolute != absolute) {
+            throw new IllegalArgumentException("Can not relativize " + other + " against " + this);
+        }
+        int common = 0;
+        while (common < names.length && common < path.names.length && names[common].equals(path.names[common])) {
+            common++;
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = common; i < names.length; i++) {
+            result.add("..");
+        }
+        result.addAll(Arrays.asList(path.names).subList(common, path.names.length));
+        return new MemoryPath(fileSystem, false, result.toArray(new String[0]));
+    }
+
+    /**
+     * Gives {@link URI} of the path with the identifier of the file system as authority.
+     * @return the {@link URI} of the path
+     */
+    @Override
+    public URI toUri() {
+        try {
+            return new URI(MemoryFileSystemProvider.SCHEME, fileSystem.getId(), toAbsolutePath().toString(), null, null);
+        } catch (URISyntaxException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Gives the absolute path resolving this one against the root.
+     * @return the absolute path
+     */
+    @Override
+    public Path toAbsolutePath() {
+        return absolute ? this : new MemoryPath(fileSystem, true, names);
+    }
+
+    /**
+     * Gives the normalized absolute path of the existing file. There are no links in the file system.
+     * @param options ignored
+     * @return the real path
+     * @throws NoSuchFileException when the file does not exist.
+     */
+    @Override
+    public Path toRealPath(LinkOption... options) throws NoSuchFileException {
+        Path path = toAbsolutePath().normalize();
+        fileSystem.checkExists(MemoryPath.of(path));
+        return path;
+    }
+
+    /**
+     * Watching is not supported.
+     * @param watcher ignored
+     * @param events ignored
+     * @param modifiers ignored
+     * @return never returns
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Watching is not supported");
+    }
+
+    /**
+     * Compares the paths lexicographically by their string representations.
+     * @param other the path to compare with
+     * @return the result of comparison of the strings
+     */
+    @Override
+    public int compareTo(Path other) {
+        return toString().compareTo(of(other).toString());
+    }
+
+    /**
+     * Checks if the paths are of the same file system and have the same names.
+     * @param obj the object to compare with
+     * @return if the paths are equal
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof MemoryPath) {
+            MemoryPath path = (MemoryPath) obj;
+            return path.fileSystem == fileSystem && path.absolute == absolute && Arrays.equals(path.names, names);
+        }
+        return false;
+    }
+
+    /**
+     * Gives the hash code consistent with {@link #equals(Object)}.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(names) + Boolean.hashCode(absolute);
+    }
+
+    /**
+     * Gives the names of the path joined with {@code /}.
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return (absolute ? "/" : "") + String.join("/", names);
+    }
+}
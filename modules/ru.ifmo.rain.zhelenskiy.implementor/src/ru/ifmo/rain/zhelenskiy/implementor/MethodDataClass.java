@@ -3,8 +3,11 @@ package ru.ifmo.rain.zhelenskiy.implementor;
 //import org.jetbrains.annotations.Contract;
 //import org.jetbrains.annotations.NotNull;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * The method wrapper that specifies equality ({@link MethodDataClass#equals(Object)}) and hash code ({@link MethodDataClass#hashCode()}) methods.
@@ -14,27 +17,23 @@ import java.util.Arrays;
  *     <li>Parameters types.</li>
  * </ul>
  * The hash code implementation provides equality of hashes of wrappers if the wrappers are equal.
+ * The signature is computed once when the wrapper is constructed: the parameter types are interned,
+ * so equal vectors of parameter types are the same object and are compared by reference.
  * @author zhelenskiy
  * @version 1.0
  * @see Method
+ * @see MethodDataSet
  */
 public class MethodDataClass {
-    private final Method method;
-
     /**
-     * Combines hashes
-     * @param hashes the hashes to combine
-     * @return the result hash
+     * The interned vectors of parameter types. The classes are referenced weakly, so they still can be unloaded.
      */
-//    @Contract(pure = true)
-    private int hash(/*@NotNull*/ int... hashes) {
-        final int POLYNOMIAL_CONSTANT = 997;
-        int newHash = 1;
-        for (int givenHash : hashes) {
-            newHash = newHash * POLYNOMIAL_CONSTANT + givenHash;
-        }
-        return newHash;
-    }
+    private static final Map<List<Class<?>>, WeakReference<List<Class<?>>>> PARAMETER_TYPES = new WeakHashMap<>();
+
+    private final Method method;
+    private final String name;
+    private final List<Class<?>> parameterTypes;
+    private final long longHash;
 
     /**
      * Constructs method wrapper with the given wrapper
@@ -42,6 +41,40 @@ public class MethodDataClass {
      */
     public MethodDataClass(Method method) {
         this.method = method;
+        this.name = method.getName();
+        this.parameterTypes = intern(List.of(method.getParameterTypes()));
+        this.longHash = hash(name.hashCode(), parameterTypes.hashCode());
+    }
+
+    /**
+     * Gives the interned copy of the vector of parameter types.
+     * @param parameterTypes the vector to intern
+     * @return the equal vector that is shared by all the wrappers
+     */
+    private static List<Class<?>> intern(List<Class<?>> parameterTypes) {
+        synchronized (PARAMETER_TYPES) {
+            WeakReference<List<Class<?>>> reference = PARAMETER_TYPES.get(parameterTypes);
+            List<Class<?>> interned = reference == null ? null : reference.get();
+            if (interned == null) {
+                PARAMETER_TYPES.put(parameterTypes, new WeakReference<>(parameterTypes));
+                interned = parameterTypes;
+            }
+            return interned;
+        }
+    }
+
+    /**
+     * Combines hashes of the name and the parameter types into 64-bit hash.
+     * @param nameHash the hash of the name
+     * @param parameterTypesHash the hash of the parameter types
+     * @return the result hash
+     */
+//    @Contract(pure = true)
+    private static long hash(int nameHash, int parameterTypesHash) {
+        long hash = ((long) nameHash << 32) ^ (parameterTypesHash & 0xFFFFFFFFL);
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
     }
 
     /**
@@ -54,8 +87,9 @@ public class MethodDataClass {
     public boolean equals(Object obj) {
         if (obj instanceof MethodDataClass) {
             MethodDataClass otherWrapper = (MethodDataClass) obj;
-            return method.getName().equals(otherWrapper.method.getName()) &&
-                    Arrays.equals(method.getParameterTypes(), otherWrapper.method.getParameterTypes());
+            return longHash == otherWrapper.longHash
+                    && parameterTypes == otherWrapper.parameterTypes
+                    && name.equals(otherWrapper.name);
         }
         return false;
     }
@@ -66,10 +100,15 @@ public class MethodDataClass {
      */
     @Override
     public int hashCode() {
-        return hash(Arrays.hashCode(method.getParameterTypes()),
-                method.getName().hashCode()/*,
-                method.getModifiers(),
-                method.getReturnType().hashCode()*/);
+        return (int) (longHash ^ (longHash >>> 32));
+    }
+
+    /**
+     * Gives the precomputed 64-bit hash of the signature.
+     * @return the 64-bit hash code of the method wrapper
+     */
+    long longHashCode() {
+        return longHash;
     }
 
     /**
@@ -79,4 +118,4 @@ public class MethodDataClass {
     public Method getMethod() {
         return method;
     }
-}
\ No newline at end of file
+}
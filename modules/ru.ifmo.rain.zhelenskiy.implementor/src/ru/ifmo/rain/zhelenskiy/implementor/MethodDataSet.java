@@ -0,0 +1,138 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The set of {@link MethodDataClass} wrappers with open addressing.
+ * The hash table uses linear probing by the precomputed 64-bit hashes of the wrappers
+ * and keeps only indices of the elements, the elements themselves are kept in the order of addition,
+ * so the iteration order does not depend on the hashes.
+ * Adding of a wrapper equal to the present one replaces it, so the set can be used as a map
+ * from signatures to methods.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see MethodDataClass
+ */
+final class MethodDataSet implements Iterable<MethodDataClass> {
+    /**
+     * The initial number of elements the set can hold without growth.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private MethodDataClass[] elements;
+    private int size;
+    /**
+     * Indices of the elements increased by one, {@code 0} marks an empty slot.
+     */
+    private int[] table;
+
+    /**
+     * Constructs empty set.
+     */
+    MethodDataSet() {
+        elements = new MethodDataClass[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Constructs copy of the given set.
+     * @param other the set to copy
+     */
+    MethodDataSet(MethodDataSet other) {
+        elements = other.elements.clone();
+        size = other.size;
+        table = other.table.clone();
+    }
+
+    /**
+     * Finds the element equal to the given one.
+     * @param key the element to find
+     * @return the found element or {@code null} if there is no such element
+     */
+    MethodDataClass get(MethodDataClass key) {
+        int index = table[findSlot(key)];
+        return index == 0 ? null : elements[index - 1];
+    }
+
+    /**
+     * Adds the element or replaces the equal one keeping its position in the iteration order.
+     * @param element the element to add
+     * @return the replaced element or {@code null} if there was no equal element
+     */
+    MethodDataClass put(MethodDataClass element) {
+        int slot = findSlot(element);
+        int index = table[slot];
+        if (index != 0) {
+            MethodDataClass previous = elements[index - 1];
+            elements[index - 1] = element;
+            return previous;
+        }
+        if (size == elements.length) {
+            grow();
+            slot = findSlot(element);
+        }
+        elements[size++] = element;
+        table[slot] = size;
+        return null;
+    }
+
+    /**
+     * Gives the number of elements.
+     * @return the size of the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot of the table that contains the element equal to the given one
+     * or the empty slot where it should be placed.
+     * @param key the element to find
+     * @return the index of the slot
+     */
+    private int findSlot(MethodDataClass key) {
+        int mask = table.length - 1;
+        int slot = (int) key.longHashCode() & mask;
+        while (table[slot] != 0 && !elements[table[slot] - 1].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity and rebuilds the table.
+     */
+    private void grow() {
+        elements = Arrays.copyOf(elements, elements.length * 2);
+        table = new int[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            table[findSlot(elements[i])] = i + 1;
+        }
+    }
+
+    /**
+     * Gives the iterator over the elements in the order of their addition.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<MethodDataClass> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public MethodDataClass next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return elements[next++];
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The table of instance methods visible in a class or an interface.
+ * For each method signature (see {@link MethodDataClass}) it keeps the most specific declaration
+ * in {@link MethodDataSet}.
+ * The tables are cached per class by {@link ClassValue}. The table of a type is built from the cached tables
+ * of its direct supertypes and its own declared methods, so each class is reflected only once
+ * however many tokens extend it. The abstract methods of a token are found once and cached in its table too.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class MethodTable {
+    /**
+     * The cache of the tables.
+     */
+    private static final ClassValue<MethodTable> TABLES = new ClassValue<>() {
+        @Override
+        protected MethodTable computeValue(Class<?> type) {
+            return new MethodTable(type);
+        }
+    };
+
+    /**
+     * The order of methods and constructors by their names and parameter types that does not depend on reflection.
+     */
+    static final Comparator<Executable> SIGNATURE_ORDER = Comparator
+            .comparing(Executable::getName)
+            .thenComparing(executable -> Arrays.toString(executable.getParameterTypes()));
+
+    /**
+     * The most specific declarations by method signatures. It is not modified after construction.
+     */
+    private final MethodDataSet methods;
+
+    /**
+     * The abstract methods of the type in the order of the table or {@code null} if they are not found yet.
+     * Finding them twice gives the equal lists, so the race of the threads is harmless.
+     */
+    private volatile List<Method> abstractMethods;
+
+    /**
+     * The abstract methods of the type in {@link #SIGNATURE_ORDER} or {@code null} if they are not sorted yet.
+     */
+    private volatile List<Method> sortedAbstractMethods;
+
+    /**
+     * Builds the table of the type from the tables of its direct supertypes.
+     * @param type the type to build the table for
+     */
+    private MethodTable(Class<?> type) {
+        methods = type.getSuperclass() == null
+                ? new MethodDataSet()
+                : new MethodDataSet(of(type.getSuperclass()).methods);
+        for (Class<?> superInterface : type.getInterfaces()) {
+            inheritFromInterface(methods, of(superInterface));
+        }
+        addMethodsToSet(type.getDeclaredMethods(), methods);
+    }
+
+    /**
+     * Adds instance methods from array to set of method wrappers replacing the inherited ones.
+     * The bridge methods generated by the compiler are added after the others and only if the type does not declare
+     * a method with the same signature itself: the bridge of a covariant override has the signature of the overridden
+     * method, so it must not replace the declaration it delegates to. The bridges of generic methods have their own
+     * signatures, so they still replace the erased methods they implement.
+     * @param declaredMethods the source array
+     * @param res the destination set
+     */
+    private static void addMethodsToSet(Method[] declaredMethods, MethodDataSet res) {
+        for (Method method : declaredMethods) {
+            if (isInstanceMethod(method) && !method.isBridge()) {
+                res.put(new MethodDataClass(method));
+            }
+        }
+        for (Method method : declaredMethods) {
+            if (isInstanceMethod(method) && method.isBridge()) {
+                MethodDataClass bridge = new MethodDataClass(method);
+                MethodDataClass existing = res.get(bridge);
+                if (existing == null || existing.getMethod().getDeclaringClass() != method.getDeclaringClass()) {
+                    res.put(bridge);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the method is inherited by the subtypes.
+     * @param method the method to check
+     * @return if the method is neither static nor private
+     */
+    private static boolean isInstanceMethod(Method method) {
+        int modifiers = method.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers);
+    }
+
+    /**
+     * Gives the cached table of the type.
+     * @param type the type
+     * @return the table of the type
+     */
+    static MethodTable of(Class<?> type) {
+        return TABLES.get(type);
+    }
+
+    /**
+     * Gives methods that should be implemented by a class extending (implementing) the token.
+     * @param token the type token to implement
+     * @return the unmodifiable list of the abstract methods of the token
+     */
+    static List<Method> getAbstractMethods(Class<?> token) {
+        MethodTable table = of(token);
+        List<Method> result = table.abstractMethods;
+        if (result == null) {
+            result = List.copyOf(findAbstractMethods(token));
+            table.abstractMethods = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gives methods that should be implemented by a class extending (implementing) the token.
+     * @param token the type token to implement
+     * @param sorted if the methods should be sorted in {@link #SIGNATURE_ORDER}
+     * @return the unmodifiable list of the abstract methods of the token
+     */
+    static List<Method> getAbstractMethods(Class<?> token, boolean sorted) {
+        if (!sorted) {
+            return getAbstractMethods(token);
+        }
+        MethodTable table = of(token);
+        List<Method> result = table.sortedAbstractMethods;
+        if (result == null) {
+            List<Method> methods = new ArrayList<>(getAbstractMethods(token));
+            methods.sort(SIGNATURE_ORDER);
+            result = List.copyOf(methods);
+            table.sortedAbstractMethods = result;
+        }
+        return result;
+    }
+
+    /**
+     * Finds methods that should be implemented by a class extending (implementing) the token.
+     * The table of an interface does not contain the methods of {@link Object}, so they are merged here.
+     * @param token the type token to implement
+     * @return the abstract methods of the token
+     */
+    private static List<Method> findAbstractMethods(Class<?> token) {
+        MethodDataSet methods = of(token).methods;
+        if (token.isInterface()) {
+            methods = new MethodDataSet(of(Object.class).methods);
+            inheritFromInterface(methods, of(token));
+        }
+        List<Method> result = new ArrayList<>();
+        for (MethodDataClass wrapper : methods) {
+            if (Modifier.isAbstract(wrapper.getMethod().getModifiers())) {
+                result.add(wrapper.getMethod());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the table of a superinterface into the table being built.
+     * A method of the table is kept when:
+     * <ul>
+     *     <li>It is a public concrete method of a class, as it implements the interface method;</li>
+     *     <li>It is declared by a subinterface of the interface declaring the new method, as it is more specific;</li>
+     *     <li>It is abstract and the new method is unrelated default method, as the conflict should be resolved.</li>
+     * </ul>
+     * @param result the table being built
+     * @param superInterface the table of the superinterface
+     */
+    private static void inheritFromInterface(MethodDataSet result, MethodTable superInterface) {
+        for (MethodDataClass added : superInterface.methods) {
+            MethodDataClass existing = result.get(added);
+            if (existing == null || !keepExisting(existing.getMethod(), added.getMethod())) {
+                result.put(added);
+            }
+        }
+    }
+
+    /**
+     * Chooses between the method of the table and the method of a superinterface with the same signature.
+     * @param existing the method of the table
+     * @param added the method of the superinterface
+     * @return if the method of the table should be kept
+     * @see #inheritFromInterface(MethodDataSet, MethodTable)
+     */
+    private static boolean keepExisting(Method existing, Method added) {
+        Class<?> existingOwner = existing.getDeclaringClass();
+        Class<?> addedOwner = added.getDeclaringClass();
+        if (!existingOwner.isInterface()) {
+            return Modifier.isPublic(existing.getModifiers()) || Modifier.isAbstract(existing.getModifiers());
+        }
+        if (existingOwner.isAssignableFrom(addedOwner)) {
+            return false;
+        }
+        if (addedOwner.isAssignableFrom(existingOwner)) {
+            return true;
+        }
+        return Modifier.isAbstract(existing.getModifiers());
+    }
+}
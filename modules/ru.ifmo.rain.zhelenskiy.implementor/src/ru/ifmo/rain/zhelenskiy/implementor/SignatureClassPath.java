@@ -0,0 +1,199 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.lang.module.ModuleReference;
+import java.lang.module.ResolvedModule;
+import java.lang.reflect.Executable;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericSignatureFormatError;
+import java.lang.reflect.MalformedParameterizedTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The builder of the class-path containing only the locations of the types the implementations refer to.
+ * These are the implemented type tokens and the types of parameters, results and exceptions of their constructors
+ * and implemented methods, together with all their supertypes and enclosing classes that the compiler reads
+ * to check the implementations. The types of the platform are found by the compiler without the class-path,
+ * so they are skipped.
+ * The location of the type is the location of its {@link CodeSource} or, if it has no code source,
+ * the location of its module in its {@link ModuleLayer}. The locations are cached per class.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+final class SignatureClassPath {
+    /**
+     * The cache of the locations of the types on the default file system.
+     */
+    private static final ClassValue<Optional<Path>> LOCATIONS = new ClassValue<>() {
+        @Override
+        protected Optional<Path> computeValue(Class<?> type) {
+            return Optional.ofNullable(findLocation(type));
+        }
+    };
+
+    private final Set<Path> locations = new LinkedHashSet<>();
+    private final Set<Class<?>> visitedClasses = new HashSet<>();
+    private final Set<TypeVariable<?>> visitedVariables = new HashSet<>();
+
+    /**
+     * Constructs the empty class-path.
+     */
+    SignatureClassPath() {
+    }
+
+    /**
+     * Adds the locations of the types the implementation of the token refers to.
+     * @param token the implemented type token
+     * @param constructors the super constructors the implementation can call
+     * @param methods the implemented methods
+     */
+    void add(Class<?> token, Collection<? extends Executable> constructors, Collection<Method> methods) {
+        addClass(token);
+        for (Executable constructor : constructors) {
+            addExecutable(constructor);
+        }
+        for (Method method : methods) {
+            addExecutable(method);
+            addClass(method.getReturnType());
+            try {
+                addType(method.getGenericReturnType());
+            } catch (GenericSignatureFormatError | MalformedParameterizedTypeException | TypeNotPresentException e) {
+                // the erased type is already added
+            }
+        }
+    }
+
+    /**
+     * Gives the locations found for the added tokens.
+     * @return the locations in the order they are found
+     */
+    Set<Path> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Adds the types of the parameters and the exceptions of the executable.
+     * @param executable the constructor or the method
+     */
+    private void addExecutable(Executable executable) {
+        for (Class<?> type : executable.getParameterTypes()) {
+            addClass(type);
+        }
+        for (Class<?> type : executable.getExceptionTypes()) {
+            addClass(type);
+        }
+        try {
+            for (Type type : executable.getGenericParameterTypes()) {
+                addType(type);
+            }
+            for (Type type : executable.getGenericExceptionTypes()) {
+                addType(type);
+            }
+        } catch (GenericSignatureFormatError | MalformedParameterizedTypeException | TypeNotPresentException e) {
+            // the erased types are already added
+        }
+    }
+
+    /**
+     * Adds the classes the generic type consists of.
+     * @param type the generic type
+     */
+    private void addType(Type type) {
+        if (type instanceof Class) {
+            addClass((Class<?>) type);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            addType(parameterized.getRawType());
+            if (parameterized.getOwnerType() != null) {
+                addType(parameterized.getOwnerType());
+            }
+            for (Type argument : parameterized.getActualTypeArguments()) {
+                addType(argument);
+            }
+        } else if (type instanceof GenericArrayType) {
+            addType(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            WildcardType wildcard = (WildcardType) type;
+            for (Type bound : wildcard.getUpperBounds()) {
+                addType(bound);
+            }
+            for (Type bound : wildcard.getLowerBounds()) {
+                addType(bound);
+            }
+        } else if (type instanceof TypeVariable && visitedVariables.add((TypeVariable<?>) type)) {
+            for (Type bound : ((TypeVariable<?>) type).getBounds()) {
+                addType(bound);
+            }
+        }
+    }
+
+    /**
+     * Adds the location of the class, its supertypes and its enclosing classes.
+     * @param type the class
+     */
+    private void addClass(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || !visitedClasses.add(type)) {
+            return;
+        }
+        LOCATIONS.get(type).ifPresent(locations::add);
+        if (type.getSuperclass() != null) {
+            addClass(type.getSuperclass());
+        }
+        for (Class<?> superInterface : type.getInterfaces()) {
+            addClass(superInterface);
+        }
+        if (type.getDeclaringClass() != null) {
+            addClass(type.getDeclaringClass());
+        }
+    }
+
+    /**
+     * Finds the location of the class on the default file system.
+     * @param type the class
+     * @return the location of the class or {@code null} if it is the class of the platform or it has no location
+     */
+    private static Path findLocation(Class<?> type) {
+        try {
+            CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                return toPath(codeSource.getLocation().toURI());
+            }
+            Module module = type.getModule();
+            if (module.isNamed() && module.getLayer() != null) {
+                return module.getLayer().configuration().findModule(module.getName())
+                        .map(ResolvedModule::reference)
+                        .flatMap(ModuleReference::location)
+                        .map(SignatureClassPath::toPath)
+                        .orElse(null);
+            }
+        } catch (SecurityException | IllegalArgumentException | FileSystemNotFoundException | URISyntaxException e) {
+            // the location can not be found, the compiler will find the class in the fallback class-path
+        }
+        return null;
+    }
+
+    /**
+     * Converts the location to the path if it is a file.
+     * @param location the location
+     * @return the path or {@code null} if the location is not a file, such as the location of a platform module
+     */
+    private static Path toPath(URI location) {
+        return "file".equalsIgnoreCase(location.getScheme()) ? Path.of(location) : null;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+/**
+ * The factory of the standard {@link SourceSink}s and {@link ClassSink}s:
+ * <ul>
+ *     <li>Directory sinks save each source or class to its own file under the root directory,
+ *     the files are published atomically;</li>
+ *     <li>Memory sinks put the sources and the classes to the given map;</li>
+ *     <li>Callback sinks give the sources and the classes to the given callback;</li>
+ *     <li>{@link ZipSink} writes all the sources and the classes to a single {@code .zip}-archive.</li>
+ * </ul>
+ * The sinks are identified by the binary names of the classes.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public final class Sinks {
+    /**
+     * The writer that collects the source code in memory and gives it to the callback when it is closed.
+     * The callback is not called if the writer is aborted.
+     */
+    static final class CallbackWriter extends StringWriter implements Abortable {
+        private final Consumer<String> callback;
+        private boolean closed;
+
+        /**
+         * Constructs the writer with the given callback.
+         * @param estimatedSize the expected size of the source code
+         * @param callback the consumer of the complete source code
+         */
+        CallbackWriter(int estimatedSize, Consumer<String> callback) {
+            super(estimatedSize);
+            this.callback = callback;
+        }
+
+        /**
+         * Gives the source code to the callback the first time it is called.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                callback.accept(toString());
+            }
+        }
+
+        /**
+         * Drops the source code without giving it to the callback.
+         */
+        @Override
+        public void abort() {
+            closed = true;
+            getBuffer().setLength(0);
+        }
+    }
+
+    /**
+     * There are no instances of the factory.
+     */
+    private Sinks() {
+    }
+
+    /**
+     * Creates the sink saving the sources under the root directory as {@link Implementor#implement(Class, Path)} does.
+     * @param root the root directory
+     * @return the created sink
+     */
+    public static SourceSink directorySources(Path root) {
+        return directorySources(root, false);
+    }
+
+    /**
+     * Creates the sink saving the sources under the root directory with {@link ChannelWriter}.
+     * @param root the root directory
+     * @param directBuffers if the sources are encoded to direct buffers
+     * @return the created sink
+     */
+    static SourceSink directorySources(Path root, boolean directBuffers) {
+        return (className, estimatedSize) -> new ChannelWriter(resolve(root, className, ".java"), estimatedSize, directBuffers);
+    }
+
+    /**
+     * Creates the sink saving the classes under the root directory, so the root can be used as a class-path entry.
+     * @param root the root directory
+     * @return the created sink
+     */
+    public static ClassSink directoryClasses(Path root) {
+        return (className, content) -> AtomicFiles.write(resolve(root, className, ".class"), content);
+    }
+
+    /**
+     * Creates the sink putting the sources to the map. Access to the map is synchronized on it.
+     * @param sources the map from binary names of the classes to their sources
+     * @return the created sink
+     */
+    public static SourceSink memorySources(Map<String, String> sources) {
+        return callbackSources((className, source) -> {
+            synchronized (sources) {
+                sources.put(className, source);
+            }
+        });
+    }
+
+    /**
+     * Creates the sink putting the classes to the map. Access to the map is synchronized on it.
+     * @param classes the map from binary names of the classes to the content of their {@code .class}-files
+     * @return the created sink
+     */
+    public static ClassSink memoryClasses(Map<String, byte[]> classes) {
+        return callbackClasses((className, content) -> {
+            synchronized (classes) {
+                classes.put(className, content);
+            }
+        });
+    }
+
+    /**
+     * Creates the sink giving the complete sources to the callback. The callback may be called from several threads.
+     * @param callback the consumer of binary names of the classes and their sources
+     * @return the created sink
+     */
+    public static SourceSink callbackSources(BiConsumer<String, String> callback) {
+        return (className, estimatedSize) ->
+                new CallbackWriter(estimatedSize, source -> callback.accept(className, source));
+    }
+
+    /**
+     * Creates the sink giving the classes to the callback. The callback may be called from several threads.
+     * @param callback the consumer of binary names of the classes and the content of their {@code .class}-files
+     * @return the created sink
+     */
+    public static ClassSink callbackClasses(BiConsumer<String, byte[]> callback) {
+        return callback::accept;
+    }
+
+    /**
+     * Creates the sink writing the sources and the classes to the {@code .zip}-archive with default compression.
+     * The archive is written and the stream is closed when the sink is closed.
+     * @param out the stream to write the archive to
+     * @return the created sink
+     */
+    public static ZipSink zip(OutputStream out) {
+        return new ZipSink(out, Deflater.DEFAULT_COMPRESSION, 0, true, null, true);
+    }
+
+    /**
+     * Gives the file of the class under the root directory.
+     * @param root the root directory
+     * @param className the binary name of the class
+     * @param extension the extension of the file
+     * @return the file of the class
+     */
+    private static Path resolve(Path root, String className, String extension) {
+        return root.resolve(className.replace(".", root.getFileSystem().getSeparator()) + extension);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+/**
+ * The way {@link Implementor#implement(Class, java.nio.file.Path)} writes non-ASCII characters to the sources.
+ * The sources are always saved in {@code UTF-8}.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Implementor#withSourceEncoding(SourceEncoding)
+ */
+public enum SourceEncoding {
+    /**
+     * Non-ASCII characters are replaced with unicode escapes, so the sources are compiled with any encoding.
+     */
+    ESCAPED,
+    /**
+     * Non-ASCII characters are written as is, so the sources should be compiled with {@code -encoding UTF-8}.
+     */
+    UTF_8
+}
@@ -0,0 +1,34 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The destination of the source code generated by {@link Implementor}.
+ * The sinks may be used from several threads at once, for example by
+ * {@link Implementor#implementAll(java.util.Collection, java.nio.file.Path)}, so they should be thread-safe.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see Sinks
+ * @see Implementor#implement(Class, SourceSink)
+ */
+@FunctionalInterface
+public interface SourceSink extends Closeable {
+    /**
+     * Opens the writer of the source code of the class. The source code is complete when the writer is closed.
+     * @param className the binary name of the class
+     * @param estimatedSize the expected size of the source code in bytes
+     * @return the writer of the source code
+     * @throws IOException when the source code can not be written.
+     */
+    Writer openSource(String className, int estimatedSize) throws IOException;
+
+    /**
+     * Finishes the output after all the sources are written. Does nothing by default.
+     * @throws IOException when the output can not be finished.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,270 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * The sink writing the sources and the classes to a single {@code .zip}-archive.
+ * Each entry is compressed and written as soon as it is complete, so the sink does not keep the entries
+ * that are already written. The names of the entries are package-relative paths of the files.
+ * The reproducible archive does not depend on the time and on the order the entries are added in:
+ * the entries have the same fixed time and are sorted by names, the entries of {@code META-INF} directory go first
+ * with the manifest before the others, as it is expected by {@link java.util.jar.JarInputStream}.
+ * The names of the entries of the reproducible archive are given beforehand, so each entry is written
+ * as soon as the entries before it are, and only the entries that come ahead of their turn are kept.
+ * The archive is complete only when the sink is closed. The aborted sink does not write the rest of the archive.
+ * @author zhelenskiy
+ * @version 1.0
+ * @see JarWriter
+ */
+public final class ZipSink implements SourceSink, ClassSink, Abortable {
+    /**
+     * The order of the entries of the reproducible archive.
+     */
+    private static final Comparator<String> ENTRY_ORDER = Comparator
+            .comparing((String name) -> !name.equals(JarFile.MANIFEST_NAME))
+            .thenComparing(name -> !name.startsWith("META-INF/"))
+            .thenComparing(Comparator.naturalOrder());
+
+    private final JarWriter writer;
+    private final int deflateLevel;
+    private final int storedThreshold;
+    private final boolean parallelDeflate;
+    private final boolean closeStream;
+    /**
+     * The names of the entries of the reproducible archive in their order or {@code null} if it is not reproducible.
+     */
+    private final List<String> order;
+    /**
+     * The entries of the archive that is not reproducible that are not written yet in the order they are added.
+     */
+    private final Queue<ForkJoinTask<JarWriter.Entry>> queue = new ArrayDeque<>();
+    /**
+     * The entries of the reproducible archive that are not written yet by their names.
+     */
+    private final Map<String, ForkJoinTask<JarWriter.Entry>> pending = new HashMap<>();
+    /**
+     * The names of the entries of the reproducible archive or {@code null} if it is not reproducible.
+     */
+    private final Set<String> expected;
+    private final Set<String> names = new HashSet<>();
+    private int next;
+    private boolean closed;
+
+    /**
+     * Constructs the sink writing to the stream.
+     * @param out the stream to write the archive to
+     * @param deflateLevel the level the entries are deflated with
+     * @param storedThreshold the entries not bigger than this are stored without compression
+     * @param parallelDeflate if the entries are deflated in parallel
+     * @param reproducibleNames the names of all the entries of the reproducible archive
+     *                          or {@code null} if the archive is not reproducible
+     * @param closeStream if the stream is closed after the archive is written
+     */
+    ZipSink(OutputStream out, int deflateLevel, int storedThreshold, boolean parallelDeflate,
+            Collection<String> reproducibleNames, boolean closeStream) {
+        this.writer = new JarWriter(out, reproducibleNames != null ? JarWriter.FIXED_TIME : System.currentTimeMillis());
+        this.deflateLevel = deflateLevel;
+        this.storedThreshold = storedThreshold;
+        this.parallelDeflate = parallelDeflate;
+        this.closeStream = closeStream;
+        this.expected = reproducibleNames == null ? null : new HashSet<>(reproducibleNames);
+        this.order = expected == null ? null : expected.stream().sorted(ENTRY_ORDER).collect(Collectors.toList());
+    }
+
+    /**
+     * Generates the name of the entry for the file of the class.
+     * @param className the binary name of the class
+     * @param extension the extension of the file
+     * @return the name of the entry
+     */
+    static String entryName(String className, String extension) {
+        return className.replace('.', '/') + extension;
+    }
+
+    /**
+     * Opens the writer of the source code of the class. The source code is saved in {@code UTF-8}
+     * when the writer is closed.
+     * @param className the binary name of the class
+     * @param estimatedSize the expected size of the source code in bytes
+     * @return the writer of the source code
+     */
+    @Override
+    public Writer openSource(String className, int estimatedSize) {
+        return new SourceWriter(entryName(className, ".java"), estimatedSize);
+    }
+
+    /**
+     * The writer collecting the source code of the entry and adding the entry when it is closed.
+     */
+    private final class SourceWriter extends StringWriter implements Abortable {
+        private final String name;
+        private boolean closed;
+
+        /**
+         * Constructs the writer of the entry.
+         * @param name the name of the entry
+         * @param estimatedSize the expected size of the source code
+         */
+        SourceWriter(String name, int estimatedSize) {
+            super(estimatedSize);
+            this.name = name;
+        }
+
+        /**
+         * Adds the entry the first time it is called.
+         * @throws IOException when the entry can not be added.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                putEntry(name, toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        /**
+         * Drops the source code without adding the entry.
+         */
+        @Override
+        public void abort() {
+            closed = true;
+            getBuffer().setLength(0);
+        }
+    }
+
+    /**
+     * Takes the compiled class.
+     * @param className the binary name of the class
+     * @param content the content of the {@code .class}-file
+     * @throws IOException when the class can not be written.
+     */
+    @Override
+    public void putClass(String className, byte[] content) throws IOException {
+        putEntry(entryName(className, ".class"), content);
+    }
+
+    /**
+     * Adds the entry to the archive and writes the entries that are ready.
+     * The entry is compressed in parallel if it is enabled or by the calling thread otherwise.
+     * @param name the name of the entry
+     * @param content the content of the entry
+     * @throws IOException when the sink is closed, the entry is already added, it is not expected
+     * in the reproducible archive or the entries can not be written.
+     */
+    void putEntry(String name, byte[] content) throws IOException {
+        ForkJoinTask<JarWriter.Entry> task = ForkJoinTask.adapt(
+                () -> JarWriter.Entry.of(name, content, deflateLevel, storedThreshold));
+        if (parallelDeflate) {
+            ForkJoinPool.commonPool().execute(task);
+        } else {
+            task.invoke();
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Archive is already closed");
+            }
+            if (!names.add(name)) {
+                throw new IOException("Duplicate entry " + name);
+            }
+            if (order == null) {
+                queue.add(task);
+            } else if (expected.contains(name)) {
+                pending.put(name, task);
+            } else {
+                throw new IOException("Unexpected entry " + name);
+            }
+            flush(false);
+        }
+    }
+
+    /**
+     * Writes the entries that are next in turn.
+     * @param wait if the entries should be waited for until all of them are written,
+     *             otherwise only the compressed entries are written
+     * @throws IOException when the entries can not be written.
+     */
+    private void flush(boolean wait) throws IOException {
+        if (order == null) {
+            while (!queue.isEmpty() && (wait || queue.peek().isDone())) {
+                writer.write(queue.remove().join());
+            }
+            return;
+        }
+        while (next < order.size()) {
+            ForkJoinTask<JarWriter.Entry> task = pending.get(order.get(next));
+            if (task == null || !wait && !task.isDone()) {
+                return;
+            }
+            writer.write(task.join());
+            pending.remove(order.get(next++));
+        }
+    }
+
+    /**
+     * Writes the rest of the entries and the central directory the first time it is called.
+     * @throws IOException when the archive can not be written or some entries of the reproducible archive
+     * were not added.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (closeStream) {
+            try (writer) {
+                writeRest();
+            }
+        } else {
+            writeRest();
+            writer.finish();
+        }
+    }
+
+    /**
+     * Drops the entries that are not written yet and closes the stream if the sink should close it,
+     * without writing the central directory. Does nothing if the sink is already closed.
+     */
+    @Override
+    public synchronized void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.forEach(task -> task.cancel(false));
+        queue.clear();
+        pending.values().forEach(task -> task.cancel(false));
+        pending.clear();
+        if (closeStream) {
+            writer.abort();
+        }
+    }
+
+    /**
+     * Writes the rest of the entries.
+     * @throws IOException when the entries can not be written or some entries were not added.
+     */
+    private void writeRest() throws IOException {
+        flush(true);
+        if (order != null && next < order.size()) {
+            throw new IOException("Missing entry " + order.get(next));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the files published by {@link AtomicFiles}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class AtomicFilesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPublishedFileHasDefaultPermissions() throws IOException {
+        Path root = folder.getRoot().toPath();
+        Assume.assumeNotNull(Files.getFileAttributeView(root, PosixFileAttributeView.class));
+        Path plain = Files.write(root.resolve("plain"), new byte[]{1});
+        Path published = root.resolve("published");
+        AtomicFiles.write(published, new byte[]{2});
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(plain);
+        assertEquals(permissions, Files.getPosixFilePermissions(published));
+    }
+
+    @Test
+    public void testWriteLeavesOnlyTarget() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("dir").resolve("target");
+        AtomicFiles.write(target, new byte[]{1});
+        AtomicFiles.write(target, new byte[]{2, 3});
+        assertArrayEquals(new byte[]{2, 3}, Files.readAllBytes(target));
+        try (Stream<Path> files = Files.list(target.getParent())) {
+            assertEquals(List.of(target), files.collect(Collectors.toList()));
+        }
+    }
+}
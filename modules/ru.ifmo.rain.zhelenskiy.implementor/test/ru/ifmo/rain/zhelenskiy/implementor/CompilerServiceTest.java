@@ -0,0 +1,97 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the class-paths of {@link CompilerService}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class CompilerServiceTest {
+    private static final String USER = "class User { String value = new Helper().get(); }";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMissingClassIsFoundOnFallback() throws IOException, ImplerException {
+        Path fallback = helper("fallback", "String get() { return null; }");
+        List<String> classes = new ArrayList<>();
+        CompilerService.getInstance().compile(List.of(new MemoryJavaFileManager.SourceFile("User", USER)),
+                List.of(), List.of(fallback), Sinks.callbackClasses((className, content) -> classes.add(className)));
+        assertEquals(List.of("User"), classes);
+
+        Path output = folder.newFolder("output").toPath();
+        Path source = Files.writeString(output.resolve("User.java"), USER, StandardCharsets.UTF_8);
+        CompilerService.getInstance().compile(List.of(source), List.of(), List.of(fallback), output);
+        assertTrue(Files.exists(output.resolve("User.class")));
+    }
+
+    @Test
+    public void testOtherErrorsAreNotRetried() throws IOException, ImplerException {
+        Path classPath = helper("classPath", "int get() { return 0; }");
+        Path fallback = helper("fallback", "String get() { return null; }");
+        try {
+            CompilerService.getInstance().compile(List.of(new MemoryJavaFileManager.SourceFile("User", USER)),
+                    List.of(classPath), List.of(fallback), Sinks.callbackClasses((className, content) -> { }));
+            fail("Compilation is retried with the fallback class-path");
+        } catch (ImplerException e) {
+            // the incompatible types are not fixed by the missing classes
+        }
+    }
+
+    @Test
+    public void testManifestClassPathIsFollowed() throws IOException, ImplerException {
+        Path helper = helper("helper", "String get() { return null; }");
+        Path jars = folder.newFolder("jars").toPath();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jars.resolve("helper.jar")))) {
+            out.putNextEntry(new JarEntry("Helper.class"));
+            out.write(Files.readAllBytes(helper.resolve("Helper.class")));
+            out.closeEntry();
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "helper.jar");
+        Path pathing = jars.resolve("pathing.jar");
+        new JarOutputStream(Files.newOutputStream(pathing), manifest).close();
+
+        List<String> classes = new ArrayList<>();
+        CompilerService.getInstance().compile(List.of(new MemoryJavaFileManager.SourceFile("User", USER)),
+                List.of(pathing), null, Sinks.callbackClasses((className, content) -> classes.add(className)));
+        assertEquals(List.of("User"), classes);
+    }
+
+    /**
+     * Compiles the helper class to the new directory.
+     * @param name the name of the directory
+     * @param method the method of the helper class
+     * @return the directory with the compiled helper class
+     * @throws IOException when the directory can not be created.
+     * @throws ImplerException when the helper class can not be compiled.
+     */
+    private Path helper(String name, String method) throws IOException, ImplerException {
+        Path dir = folder.newFolder(name).toPath();
+        Path source = Files.writeString(dir.resolve("Helper.java"),
+                "public class Helper { public " + method + " }", StandardCharsets.UTF_8);
+        CompilerService.getInstance().compile(List.of(source), List.of(), null, dir);
+        return dir;
+    }
+}
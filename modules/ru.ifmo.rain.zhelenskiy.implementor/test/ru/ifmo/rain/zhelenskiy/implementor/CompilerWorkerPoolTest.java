@@ -0,0 +1,42 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the compilations by {@link CompilerWorkerPool}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class CompilerWorkerPoolTest {
+    @Test
+    public void testSourceFailureKeepsWorker() throws IOException, ImplerException {
+        try (CompilerWorkerPool pool = new CompilerWorkerPool(1, 100, Long.MAX_VALUE, Duration.ofMinutes(1))) {
+            MemoryJavaFileManager.LazySourceFile broken = new MemoryJavaFileManager.LazySourceFile("Broken", 16,
+                    writer -> {
+                        throw new IOException("broken renderer");
+                    });
+            try {
+                pool.compile(List.of(broken), List.of(), null, Sinks.callbackClasses((className, content) -> { }));
+                fail("Broken source is compiled");
+            } catch (ImplerException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("broken renderer"));
+                assertTrue(e.getMessage(), !e.getMessage().contains("worker"));
+            }
+
+            List<String> classes = new ArrayList<>();
+            pool.compile(List.of(new MemoryJavaFileManager.SourceFile("Fine", "class Fine {}")), List.of(), null,
+                    Sinks.callbackClasses((className, content) -> classes.add(className)));
+            assertEquals(List.of("Fine"), classes);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.sql.rowset.CachedRowSet;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the batch operations of {@link Implementor}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class ImplementorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The holder of the interface implemented by {@code NestedImpl}.
+     */
+    public static class First {
+        public interface Nested {
+            int first();
+        }
+    }
+
+    /**
+     * The other holder of the interface implemented by {@code NestedImpl}.
+     */
+    public static class Second {
+        public interface Nested {
+            String second();
+        }
+    }
+
+    @Test
+    public void testCollidingNamesAreRejectedByJar() throws Exception {
+        Path jar = folder.getRoot().toPath().resolve("nested.jar");
+        for (CompilationMode mode : CompilationMode.values()) {
+            try {
+                new Implementor().withCompilationMode(mode)
+                        .implementJar(List.of(First.Nested.class, Second.Nested.class), jar);
+                fail("Colliding implementations are accepted in " + mode + " mode");
+            } catch (ImplerException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("NestedImpl"));
+            }
+            assertFalse(Files.exists(jar));
+        }
+    }
+
+    @Test
+    public void testCollidingNamesAreRejectedByImplementAll() throws Exception {
+        Path root = folder.getRoot().toPath();
+        try {
+            new Implementor().implementAll(List.of(First.Nested.class, Second.Nested.class), root);
+            fail("Colliding implementations are accepted");
+        } catch (ImplerException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("NestedImpl"));
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testPlatformTokenFailsWithImplerException() throws Exception {
+        Path jar = folder.getRoot().toPath().resolve("platform.jar");
+        for (CompilationMode mode : List.of(CompilationMode.DISK, CompilationMode.MEMORY)) {
+            try {
+                new Implementor().withCompilationMode(mode).implementJar(List.of(CachedRowSet.class), jar);
+                fail("Implementation in the package of the platform module is compiled in " + mode + " mode");
+            } catch (ImplerException e) {
+                // the package of the token belongs to the platform module
+            }
+        }
+    }
+
+    @Test
+    public void testAppendJarReplacesFileAtomically() throws Exception {
+        Path jar = folder.getRoot().toPath().resolve("appended.jar");
+        Implementor implementor = new Implementor().withReproducible(true);
+        implementor.implementJar(List.of(First.Nested.class), jar);
+        long size = Files.size(jar);
+        implementor.appendJar(List.of(First.Nested.class, Second.class), jar);
+        implementor.appendJar(List.of(First.Nested.class), jar);
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            assertNotNull(zip.getEntry(First.class.getPackageName().replace('.', '/') + "/NestedImpl.class"));
+            assertNotNull(zip.getEntry(First.class.getPackageName().replace('.', '/') + "/SecondImpl.class"));
+        }
+        assertTrue(Files.size(jar) > size);
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(List.of(jar), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testFailedSourceIsNotPublished() throws Exception {
+        Path root = folder.getRoot().toPath();
+        SourceSink directory = Sinks.directorySources(root, false);
+        SourceSink failing = (className, estimatedSize) -> new FailingWriter(
+                directory.openSource(className, estimatedSize));
+        try {
+            new Implementor().implement(First.Nested.class, failing);
+            fail("Failed source is published");
+        } catch (ImplerException e) {
+            // the writer failed in the middle of the source
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            assertTrue(files.allMatch(Files::isDirectory));
+        }
+    }
+
+    /**
+     * The writer that passes the first characters to the underlying one and fails after them.
+     */
+    private static final class FailingWriter extends Writer implements Abortable {
+        private final Writer out;
+        private int remaining = 16;
+
+        /**
+         * Constructs the writer.
+         * @param out the underlying writer
+         */
+        FailingWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (length > remaining) {
+                throw new IOException("Disk is full");
+            }
+            remaining -= length;
+            out.write(chars, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void abort() {
+            ((Abortable) out).abort();
+        }
+    }
+
+    @Test
+    public void testRepeatedTokenIsImplementedOnce() throws Exception {
+        Path jar = folder.getRoot().toPath().resolve("repeated.jar");
+        new Implementor().implementJar(List.of(First.Nested.class, First.Nested.class), jar);
+        assertTrue(Files.exists(jar));
+    }
+}
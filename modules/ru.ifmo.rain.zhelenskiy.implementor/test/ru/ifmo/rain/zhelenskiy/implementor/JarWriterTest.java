@@ -0,0 +1,202 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests of the {@code .jar}-files written and appended by {@link JarWriter}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class JarWriterTest {
+    /**
+     * The content that is stored with the threshold of the tests.
+     */
+    private static final byte[] SMALL = "small".getBytes(StandardCharsets.UTF_8);
+    /**
+     * The content that is deflated with the threshold of the tests.
+     */
+    private static final byte[] LARGE = String.join("", Collections.nCopies(100, "large content "))
+            .getBytes(StandardCharsets.UTF_8);
+    private static final int STORED_THRESHOLD = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrittenEntriesAreReadable() throws IOException {
+        Path jar = folder.getRoot().toPath().resolve("written.jar");
+        Map<String, byte[]> contents = contents("a/Small.class", SMALL, "a/Large.class", LARGE);
+        try (JarWriter writer = new JarWriter(Files.newOutputStream(jar), System.currentTimeMillis())) {
+            write(writer, contents);
+        }
+        assertEntries(jar, contents);
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("a/Small.class").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("a/Large.class").getMethod());
+        }
+    }
+
+    @Test
+    public void testAppendedEntriesAreReadable() throws IOException {
+        Path jar = folder.getRoot().toPath().resolve("appended.jar");
+        try (JarWriter writer = new JarWriter(Files.newOutputStream(jar), System.currentTimeMillis())) {
+            write(writer, contents("a/Kept.class", LARGE, "a/Replaced.class", SMALL));
+        }
+        Map<String, byte[]> appended = contents("a/Replaced.class", LARGE, "a/New.class", SMALL);
+        append(jar, appended);
+
+        Map<String, byte[]> expected = contents("a/Kept.class", LARGE);
+        expected.putAll(appended);
+        assertEntries(jar, expected);
+    }
+
+    @Test
+    public void testEntriesWithDataDescriptorsAreCopied() throws IOException {
+        Path jar = folder.getRoot().toPath().resolve("descriptors.jar");
+        Map<String, byte[]> contents = contents("a/Small.class", SMALL, "a/Large.class", LARGE);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        Map<String, byte[]> appended = contents("b/New.class", LARGE);
+        append(jar, appended);
+
+        contents.putAll(appended);
+        assertEntries(jar, contents);
+    }
+
+    @Test
+    public void testReplacedEntriesAreReclaimed() throws IOException {
+        Path jar = folder.getRoot().toPath().resolve("reclaimed.jar");
+        Map<String, byte[]> contents = contents("a/Small.class", SMALL, "a/Large.class", LARGE);
+        try (JarWriter writer = new JarWriter(Files.newOutputStream(jar), JarWriter.FIXED_TIME)) {
+            write(writer, contents);
+        }
+        byte[] written = Files.readAllBytes(jar);
+        for (int i = 0; i < 3; i++) {
+            append(jar, contents("a/Large.class", LARGE));
+        }
+        assertEquals(written.length, Files.size(jar));
+        assertEntries(jar, contents);
+        try (Stream<Path> files = Files.list(jar.getParent())) {
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void testAppendingToCorruptedFileFails() throws IOException {
+        Path jar = folder.getRoot().toPath().resolve("corrupted.jar");
+        byte[] content = "not a jar".getBytes(StandardCharsets.UTF_8);
+        Files.write(jar, content);
+        try {
+            append(jar, contents("a/New.class", SMALL));
+        } catch (IOException e) {
+            assertArrayEquals(content, Files.readAllBytes(jar));
+            return;
+        }
+        throw new AssertionError("Corrupted jar-file is accepted");
+    }
+
+    /**
+     * Creates the ordered contents of the entries.
+     * @param nameAndContent the names of the entries followed by their contents
+     * @return the map from the names to the contents
+     */
+    private static Map<String, byte[]> contents(Object... nameAndContent) {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndContent.length; i += 2) {
+            contents.put((String) nameAndContent[i], (byte[]) nameAndContent[i + 1]);
+        }
+        return contents;
+    }
+
+    /**
+     * Writes the entries with the threshold of the tests.
+     * @param writer the writer to write to
+     * @param contents the contents of the entries by their names
+     * @throws IOException when the entries can not be written.
+     */
+    private static void write(JarWriter writer, Map<String, byte[]> contents) throws IOException {
+        for (JarWriter.Entry entry : JarWriter.Entry.compress(contents, Deflater.BEST_SPEED, STORED_THRESHOLD, false)) {
+            writer.write(entry);
+        }
+    }
+
+    /**
+     * Adds the entries to the {@code .jar}-file the way {@link Implementor#appendJar} does.
+     * @param jar the {@code .jar}-file to update
+     * @param contents the contents of the entries by their names
+     * @throws IOException when the file can not be updated.
+     */
+    private static void append(Path jar, Map<String, byte[]> contents) throws IOException {
+        Path temp = AtomicFiles.createTempSibling(jar);
+        try {
+            OutputStream out = Files.newOutputStream(temp);
+            try (JarWriter writer = JarWriter.append(jar, out, contents.keySet(), JarWriter.FIXED_TIME)) {
+                write(writer, contents);
+            }
+            AtomicFiles.publish(temp, jar);
+        } finally {
+            AtomicFiles.discard(temp);
+        }
+    }
+
+    /**
+     * Checks that the {@code .jar}-file has exactly the given entries and that their sizes and checksums match
+     * the stored ones.
+     * @param jar the {@code .jar}-file to check
+     * @param expected the contents of the entries by their names
+     * @throws IOException when the file can not be read.
+     */
+    private static void assertEntries(Path jar, Map<String, byte[]> expected) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            List<String> names = new ArrayList<>();
+            zip.stream().forEach(entry -> names.add(entry.getName()));
+            assertEquals(expected.keySet(), Set.copyOf(names));
+            assertEquals(expected.size(), names.size());
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                ZipEntry zipEntry = zip.getEntry(entry.getKey());
+                byte[] content;
+                try (InputStream in = zip.getInputStream(zipEntry)) {
+                    content = in.readAllBytes();
+                }
+                assertArrayEquals(entry.getKey(), entry.getValue(), content);
+                assertEquals(content.length, zipEntry.getSize());
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                assertEquals(crc.getValue(), zipEntry.getCrc());
+                if (zipEntry.getMethod() == ZipEntry.STORED) {
+                    assertEquals(content.length, zipEntry.getCompressedSize());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the tree operations of {@link MemoryFileSystem}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class MemoryFileSystemTest {
+    private MemoryFileSystem fileSystem;
+    private Path dir;
+
+    @Before
+    public void open() throws IOException {
+        fileSystem = MemoryFileSystemProvider.newFileSystem();
+        dir = Files.createDirectories(fileSystem.getPath("/scratch"));
+    }
+
+    @After
+    public void close() {
+        fileSystem.close();
+    }
+
+    @Test
+    public void testMoveRenamesFile() throws IOException {
+        Path source = write("source", "content");
+        Path target = dir.resolve("target");
+        Files.move(source, target);
+        assertFalse(Files.exists(source));
+        assertEquals("content", read(target));
+    }
+
+    @Test
+    public void testMoveDoesNotReplaceWithoutOption() throws IOException {
+        Path source = write("source", "new");
+        Path target = write("target", "old");
+        try {
+            Files.move(source, target);
+            fail("Existing file is replaced");
+        } catch (FileAlreadyExistsException e) {
+            assertEquals("new", read(source));
+            assertEquals("old", read(target));
+        }
+    }
+
+    @Test
+    public void testMoveReplacesWithOption() throws IOException {
+        for (StandardCopyOption option : new StandardCopyOption[]{
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE}) {
+            Path source = write("source", "new " + option);
+            Path target = write("target", "old");
+            Files.move(source, target, option);
+            assertFalse(Files.exists(source));
+            assertEquals("new " + option, read(target));
+        }
+    }
+
+    @Test
+    public void testMoveDoesNotReplaceNonEmptyDirectory() throws IOException {
+        Path source = write("source", "content");
+        Path target = Files.createDirectory(dir.resolve("target"));
+        write("target/child", "child");
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            fail("Non-empty directory is replaced");
+        } catch (DirectoryNotEmptyException e) {
+            assertEquals("child", read(target.resolve("child")));
+        }
+    }
+
+    @Test
+    public void testMoveDirectoryKeepsEntries() throws IOException {
+        write("child", "content");
+        Path target = fileSystem.getPath("/moved");
+        Files.move(dir, target);
+        assertFalse(Files.exists(dir));
+        assertEquals("content", read(target.resolve("child")));
+        try {
+            Files.move(target, target.resolve("inner"));
+            fail("Directory is moved into itself");
+        } catch (FileSystemException e) {
+            assertTrue(Files.isDirectory(target));
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() throws IOException {
+        Path source = write("source", "content");
+        Path copy = dir.resolve("copy");
+        Files.copy(source, copy);
+        Files.write(copy, "changed".getBytes(StandardCharsets.UTF_8));
+        assertEquals("content", read(source));
+        assertEquals("changed", read(copy));
+    }
+
+    @Test
+    public void testDelete() throws IOException {
+        Path file = write("file", "content");
+        try {
+            Files.delete(dir);
+            fail("Non-empty directory is deleted");
+        } catch (DirectoryNotEmptyException e) {
+            assertTrue(Files.exists(file));
+        }
+        Files.delete(file);
+        assertFalse(Files.exists(file));
+        try {
+            Files.delete(file);
+            fail("Missing file is deleted");
+        } catch (NoSuchFileException e) {
+            // the file is already deleted
+        }
+        Files.delete(dir);
+        assertFalse(Files.exists(dir));
+    }
+
+    @Test
+    public void testClosedFileSystemIsEmpty() throws IOException {
+        Path file = write("file", "content");
+        fileSystem.close();
+        assertFalse(fileSystem.isOpen());
+        try {
+            Files.readAllBytes(file);
+            fail("Closed file system is read");
+        } catch (ClosedFileSystemException e) {
+            // the files are dropped with the file system
+        }
+    }
+
+    /**
+     * Writes the file in the scratch directory.
+     * @param name the path of the file relative to the scratch directory
+     * @param content the content of the file
+     * @return the path of the file
+     * @throws IOException when the file can not be written.
+     */
+    private Path write(String name, String content) throws IOException {
+        return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the file.
+     * @param file the file to read
+     * @return the content of the file
+     * @throws IOException when the file can not be read.
+     */
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
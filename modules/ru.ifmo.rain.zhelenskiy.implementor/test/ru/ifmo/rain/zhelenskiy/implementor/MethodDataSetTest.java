@@ -0,0 +1,120 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the open addressing set {@link MethodDataSet}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class MethodDataSetTest {
+    /**
+     * The number of slots of the table of the new set.
+     */
+    private static final int INITIAL_SLOTS = 32;
+
+    @Test
+    public void testCollidingSignaturesAreKeptApart() {
+        MethodDataClass[] colliding = findColliding();
+        MethodDataSet set = new MethodDataSet();
+        assertNull(set.put(colliding[0]));
+        assertNull(set.put(colliding[1]));
+        assertEquals(2, set.size());
+        assertSame(colliding[0], set.get(colliding[0]));
+        assertSame(colliding[1], set.get(colliding[1]));
+    }
+
+    @Test
+    public void testGrowthKeepsElements() {
+        List<MethodDataClass> wrappers = distinctWrappers();
+        assertTrue(wrappers.size() > INITIAL_SLOTS);
+        MethodDataSet set = new MethodDataSet();
+        for (MethodDataClass wrapper : wrappers) {
+            assertNull(set.put(wrapper));
+        }
+        assertEquals(wrappers.size(), set.size());
+        for (MethodDataClass wrapper : wrappers) {
+            assertSame(wrapper, set.get(wrapper));
+        }
+    }
+
+    @Test
+    public void testIterationFollowsInsertionOrder() {
+        List<MethodDataClass> wrappers = distinctWrappers();
+        MethodDataSet set = new MethodDataSet();
+        wrappers.forEach(set::put);
+        MethodDataClass first = wrappers.get(0);
+        MethodDataClass replacement = new MethodDataClass(first.getMethod());
+        assertSame(first, set.put(replacement));
+        wrappers.set(0, replacement);
+
+        List<MethodDataClass> iterated = new ArrayList<>();
+        set.forEach(iterated::add);
+        assertEquals(wrappers.size(), iterated.size());
+        for (int i = 0; i < wrappers.size(); i++) {
+            assertSame(wrappers.get(i), iterated.get(i));
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        List<MethodDataClass> wrappers = distinctWrappers();
+        MethodDataSet set = new MethodDataSet();
+        set.put(wrappers.get(0));
+        MethodDataSet copy = new MethodDataSet(set);
+        for (MethodDataClass wrapper : wrappers) {
+            copy.put(wrapper);
+        }
+        assertEquals(1, set.size());
+        assertNull(set.get(wrappers.get(1)));
+        assertEquals(wrappers.size(), copy.size());
+    }
+
+    /**
+     * Gives the wrappers of the public methods of {@link StringBuilder} with distinct signatures.
+     * @return the wrappers in the order of the first occurrence of their signatures
+     */
+    private static List<MethodDataClass> distinctWrappers() {
+        Map<String, MethodDataClass> wrappers = new LinkedHashMap<>();
+        for (Method method : StringBuilder.class.getMethods()) {
+            wrappers.putIfAbsent(signature(method), new MethodDataClass(method));
+        }
+        return new ArrayList<>(wrappers.values());
+    }
+
+    /**
+     * Finds two wrappers with distinct signatures that fall into the same slot of the table of the new set.
+     * @return the pair of the colliding wrappers
+     */
+    private static MethodDataClass[] findColliding() {
+        MethodDataClass[] bySlot = new MethodDataClass[INITIAL_SLOTS];
+        for (MethodDataClass wrapper : distinctWrappers()) {
+            int slot = (int) wrapper.longHashCode() & (INITIAL_SLOTS - 1);
+            if (bySlot[slot] != null) {
+                return new MethodDataClass[]{bySlot[slot], wrapper};
+            }
+            bySlot[slot] = wrapper;
+        }
+        throw new AssertionError("No colliding signatures found");
+    }
+
+    /**
+     * Gives the signature of the method.
+     * @param method the method
+     * @return the name and the parameter types of the method
+     */
+    private static String signature(Method method) {
+        return method.getName() + List.of(method.getParameterTypes());
+    }
+}
@@ -0,0 +1,141 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the abstract methods found by {@link MethodTable}, including the bridge methods generated by the compiler.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class MethodTableTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public interface Base {
+        Object get();
+    }
+
+    /**
+     * Has the bridge {@code Object get()} with the signature of the overridden method.
+     */
+    public interface Covariant extends Base {
+        @Override
+        String get();
+    }
+
+    public interface Generic<T> {
+        void accept(T value);
+    }
+
+    /**
+     * Has the bridge {@code accept(Object)} implementing the erased method.
+     */
+    public interface Specific extends Generic<String> {
+        @Override
+        void accept(String value);
+    }
+
+    /**
+     * Has the concrete bridge {@code Object get()} delegating to the abstract declaration.
+     */
+    public abstract static class AbstractCovariant implements Base {
+        @Override
+        public abstract String get();
+    }
+
+    @Test
+    public void testCovariantOverrideIsNotReplacedByBridge() {
+        assertEquals(Set.of("String get()"), signatures(Covariant.class));
+        assertEquals(Set.of("String get()"), signatures(AbstractCovariant.class));
+    }
+
+    @Test
+    public void testGenericBridgeImplementsErasedMethod() {
+        assertEquals(Set.of("void accept(String)"), signatures(Specific.class));
+    }
+
+    @Test
+    public void testAbstractMethodsAreCached() {
+        List<Method> methods = MethodTable.getAbstractMethods(Specific.class);
+        assertSame(methods, MethodTable.getAbstractMethods(Specific.class));
+        assertSame(MethodTable.getAbstractMethods(Covariant.class, true),
+                MethodTable.getAbstractMethods(Covariant.class, true));
+        try {
+            methods.clear();
+            fail("The cached abstract methods are modifiable");
+        } catch (UnsupportedOperationException e) {
+            // the cached list is shared by all the callers
+        }
+    }
+
+    @Test
+    public void testCovariantOverrideIsImplemented() throws Exception {
+        for (CompilationMode mode : CompilationMode.values()) {
+            Path jar = folder.getRoot().toPath().resolve(mode + ".jar");
+            new Implementor().withCompilationMode(mode)
+                    .implementJar(List.of(Covariant.class, AbstractCovariant.class, Specific.class), jar);
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()},
+                    getClass().getClassLoader())) {
+                Object covariant = newInstance(loader, "CovariantImpl");
+                assertNull(((Base) covariant).get());
+                assertNull(((Covariant) covariant).get());
+                assertNull(((Base) newInstance(loader, "AbstractCovariantImpl")).get());
+                @SuppressWarnings("unchecked")
+                Generic<String> specific = (Generic<String>) newInstance(loader, "SpecificImpl");
+                specific.accept("value");
+            }
+        }
+    }
+
+    /**
+     * Creates the instance of the implementation from the {@code .jar}-file.
+     * @param loader the loader of the {@code .jar}-file
+     * @param simpleName the simple name of the implementation
+     * @return the created instance
+     * @throws ReflectiveOperationException when the implementation can not be instantiated.
+     */
+    private static Object newInstance(ClassLoader loader, String simpleName) throws ReflectiveOperationException {
+        return loader.loadClass(MethodTableTest.class.getPackageName() + "." + simpleName)
+                .getConstructor().newInstance();
+    }
+
+    /**
+     * Gives the signatures of the abstract methods of the token.
+     * @param token the token
+     * @return the sorted signatures in the form {@code Result name(Parameters)}
+     */
+    private static Set<String> signatures(Class<?> token) {
+        return MethodTable.getAbstractMethods(token).stream()
+                .map(MethodTableTest::signature)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Gives the signature of the method.
+     * @param method the method
+     * @return the signature in the form {@code Result name(Parameters)}
+     */
+    private static String signature(Method method) {
+        String parameters = Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(", "));
+        return method.getReturnType().getSimpleName() + " " + method.getName() + "(" + parameters + ")";
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of the stubs created by {@link Implementor#newStub(Class)}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class StubTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStubIsShared() throws Exception {
+        Implementor implementor = new Implementor();
+        Callable<?> stub = implementor.newStub(Callable.class);
+        assertNull(stub.call());
+        assertSame(stub, implementor.newStub(Callable.class));
+        assertSame(stub.getClass(), implementor.getStubClass(Callable.class));
+    }
+
+    @Test
+    public void testStubDoesNotPinClassLoader() throws Exception {
+        Path root = folder.getRoot().toPath();
+        Files.createDirectories(root.resolve("loaded"));
+        Path source = Files.writeString(root.resolve("loaded/Service.java"),
+                "package loaded; public interface Service { int call(String argument); }");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, source.toString()));
+
+        WeakReference<ClassLoader> loader = createStub(root.toUri().toURL());
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull("Class loader of the token is pinned by the stub caches", loader.get());
+    }
+
+    /**
+     * Loads the token by a new class loader and creates its stub.
+     * @param root the class-path of the loader
+     * @return the reference to the loader
+     * @throws Exception when the stub can not be created.
+     */
+    private static WeakReference<ClassLoader> createStub(URL root) throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[]{root}, null);
+        Class<?> token = loader.loadClass("loaded.Service");
+        Object stub = new Implementor().newStub(token);
+        assertEquals(0, token.getMethod("call", String.class).invoke(stub, "argument"));
+        loader.close();
+        return new WeakReference<>(loader);
+    }
+}
@@ -0,0 +1,145 @@
+package ru.ifmo.rain.zhelenskiy.implementor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the {@code .zip}-archives written by {@link ZipSink}.
+ * @author zhelenskiy
+ * @version 1.0
+ */
+public class ZipSinkTest {
+    @Test
+    public void testEntriesAreWrittenBeforeClose() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipSink sink = new ZipSink(out, Deflater.NO_COMPRESSION, 0, false, null, true);
+        try (Writer writer = sink.openSource("a.First", 16)) {
+            writer.write("class First {}");
+        }
+        byte[] content = new byte[1 << 17];
+        new Random(0).nextBytes(content);
+        sink.putClass("a.First", content);
+        assertTrue(out.size() > content.length / 2);
+        sink.close();
+
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put("a/First.java", "class First {}".getBytes(StandardCharsets.UTF_8));
+        expected.put("a/First.class", content);
+        assertEntries(out.toByteArray(), expected);
+    }
+
+    @Test
+    public void testReproducibleArchiveDoesNotDependOnOrder() throws IOException {
+        List<String> names = List.of("b/Second.class", "a/First.class", JarFile.MANIFEST_NAME);
+        byte[] forward = reproducible(names);
+        List<String> backward = new ArrayList<>(names);
+        Collections.reverse(backward);
+        assertArrayEquals(forward, reproducible(backward));
+
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put(JarFile.MANIFEST_NAME, JarFile.MANIFEST_NAME.getBytes(StandardCharsets.UTF_8));
+        expected.put("a/First.class", "a/First.class".getBytes(StandardCharsets.UTF_8));
+        expected.put("b/Second.class", "b/Second.class".getBytes(StandardCharsets.UTF_8));
+        assertEntries(forward, expected);
+    }
+
+    @Test
+    public void testDuplicateEntryIsRejected() throws IOException {
+        ZipSink sink = new ZipSink(new ByteArrayOutputStream(), Deflater.DEFAULT_COMPRESSION, 0, true, null, true);
+        sink.putClass("a.First", new byte[]{1});
+        try {
+            sink.putClass("a.First", new byte[]{2});
+            fail("Duplicate entry is accepted");
+        } catch (IOException e) {
+            // the first entry is already written
+        }
+    }
+
+    @Test
+    public void testMissingReproducibleEntryFails() throws IOException {
+        ZipSink sink = new ZipSink(new ByteArrayOutputStream(), Deflater.DEFAULT_COMPRESSION, 0, false,
+                List.of("a/First.class", "b/Second.class"), true);
+        sink.putClass("b.Second", new byte[]{1});
+        try {
+            sink.close();
+            fail("Incomplete reproducible archive is written");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("a/First.class"));
+        }
+    }
+
+    @Test
+    public void testAbortedSinkDoesNotFinishArchive() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipSink sink = new ZipSink(out, Deflater.DEFAULT_COMPRESSION, 0, false, null, true);
+        Writer writer = sink.openSource("a.First", 16);
+        writer.write("class First {");
+        ((Abortable) writer).abort();
+        writer.close();
+        sink.putClass("a.Second", new byte[]{1});
+        sink.abort();
+        sink.close();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("a/Second.class", in.getNextEntry().getName());
+        }
+        byte[] archive = out.toByteArray();
+        for (int i = 0; i + 4 <= archive.length; i++) {
+            assertFalse("Central directory is written", archive[i] == 'P' && archive[i + 1] == 'K'
+                    && archive[i + 2] == 1 && archive[i + 3] == 2);
+        }
+    }
+
+    /**
+     * Writes the reproducible archive with the entries containing their names.
+     * @param names the names of the entries in the order they are added
+     * @return the archive
+     * @throws IOException when the archive can not be written.
+     */
+    private static byte[] reproducible(List<String> names) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipSink sink = new ZipSink(out, Deflater.DEFAULT_COMPRESSION, 0, true, names, true)) {
+            for (String name : names) {
+                sink.putEntry(name, name.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that the archive has exactly the given entries in the given order.
+     * @param archive the archive to check
+     * @param expected the contents of the entries by their names in their order
+     * @throws IOException when the archive can not be read.
+     */
+    private static void assertEntries(byte[] archive, Map<String, byte[]> expected) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                names.add(entry.getName());
+                assertArrayEquals(entry.getName(), expected.get(entry.getName()), in.readAllBytes());
+            }
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), names);
+    }
+}
@@ -0,0 +1,18 @@
+#! /usr/bin/env bash
+ROOT=$PWD
+
+MODULE_NAME=ru.ifmo.rain.zhelenskiy.implementor
+MODULE_PATH=ru/ifmo/rain/zhelenskiy/implementor
+
+OUT_PATH=out/test/$MODULE_NAME
+
+LIB_PATH=$ROOT/lib/junit-4.11.jar:$ROOT/lib/hamcrest-core-1.3.jar:$ROOT/artifacts/info.kgeorgiy.java.advanced.implementor.jar:$ROOT/artifacts/info.kgeorgiy.java.advanced.base.jar
+SRC_PATH=$ROOT/modules/$MODULE_NAME/src
+TEST_PATH=$ROOT/modules/$MODULE_NAME/test
+
+rm -rf "$OUT_PATH"
+javac -cp "$LIB_PATH" "$SRC_PATH"/$MODULE_PATH/*.java "$TEST_PATH"/$MODULE_PATH/*.java -d "$OUT_PATH" || exit
+
+TESTS=$(cd "$TEST_PATH" && ls $MODULE_PATH/*Test.java | sed 's/\.java$//; s#/#.#g')
+java -cp "$OUT_PATH:$LIB_PATH" org.junit.runner.JUnitCore $TESTS
+#running like: run-unit-tests.sh